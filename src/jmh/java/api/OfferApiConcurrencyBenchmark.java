@@ -0,0 +1,207 @@
+package api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import api.model.Offer;
+import api.model.OfferBatchResult;
+import api.model.OfferStatus;
+import api.model.Product;
+import api.repository.ProductRepository;
+import api.service.OfferService;
+
+/**
+ * JMH benchmarks of the offer end points under concurrent HTTP requests, in each execution mode
+ *
+ * <p>
+ * the application is started on a random port with a deliberately small
+ * servlet container thread pool, set by the containerThreads parameter, and 
+ * hit by more client threads than the container has. Listing offers queries
+ * the db on every request, hence it shows how many requests each mode can 
+ * keep in progress, e.g. -p containerThreads=200 for the container default.
+ * 
+ * <p>
+ * the embedded db answers in microseconds, hence listing is bound by the
+ * cpu and both modes serve the same throughput. The dbLatencyMs parameter
+ * delays every statement, once the db is seeded, as a remote db would: the
+ * container threads then wait on the db and in blocking mode the number of
+ * requests in progress is capped by the container pool, while in async mode
+ * it is capped by the executor threads and the db connection pool
+ *
+ * @author Samith Silva
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OfferApiConcurrencyBenchmark {
+
+	@Param({OfferRequestExecutor.BLOCKING, OfferRequestExecutor.ASYNC})
+	private String mode;
+
+	//maximum number of servlet container threads
+	@Param({"8"})
+	private int containerThreads;
+
+	//number of offers saved in the db before the benchmarks are run
+	@Param({"10000"})
+	private int offers;
+
+	//milliseconds every statement waits for, as a round trip to a remote db
+	@Param({"0", "20"})
+	private long dbLatencyMs;
+
+	//number of executor threads in async mode and of db connections in both modes
+	@Param({"20"})
+	private int asyncThreads;
+
+	//the db is seeded without latency
+	private volatile boolean delayStatements;
+
+	private ConfigurableApplicationContext context;
+	private String listURL;
+	private String getURL;
+	private long[] ids;
+
+	@Setup(Level.Trial)
+	public void startApplication() {
+		//passed as arguments, default properties would be overridden by application.properties
+		context = new SpringApplicationBuilder(Application.class)
+				.initializers(context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+					@Override
+					public Object postProcessAfterInitialization(Object bean, String beanName) {
+						return bean instanceof DataSource ? delayed(DataSource.class, bean) : bean;
+					}
+				}))
+				.run("--server.port=0",
+						"--server.tomcat.max-threads=" + containerThreads,
+						"--offer.api.execution-mode=" + mode,
+						"--offer.api.async.threads=" + asyncThreads,
+						"--spring.datasource.hikari.maximum-pool-size=" + asyncThreads,
+						"--spring.datasource.url=jdbc:h2:mem:offerapibenchmark;DB_CLOSE_DELAY=-1",
+						"--logging.level.api=WARN",
+						"--offer.expiry.initial-delay-ms=86400000",
+						"--offer.events.initial-delay-ms=86400000");
+
+		Product product = new Product();
+		product.setName("benchmark");
+		product.setDescription("benchmark");
+		long productID = context.getBean(ProductRepository.class).save(product).getId();
+
+		List<Offer> seed = new ArrayList<Offer>(offers);
+		for (int i = 0; i < offers; i++) {
+			seed.add(new Offer("seeded offer " + i, new BigDecimal("100.00"), "GBP", null, 30, 
+					OfferStatus.UNDEFINED, productID));
+		}
+		ids = new long[offers];
+		int i = 0;
+		for (OfferBatchResult result : context.getBean(OfferService.class).createOffers(seed, 0)) {
+			if (result.getId() == null) {
+				throw new IllegalStateException(String.format("offer %d could not be seeded: %s", 
+						result.getIndex(), result.getError()));
+			}
+			ids[i++] = Long.parseLong(result.getId());
+		}
+		delayStatements = true;
+
+		String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/offer";
+		listURL = base + "?productID=" + productID + "&limit=20&after=";
+		getURL = base + "/";
+	}
+
+	@TearDown(Level.Trial)
+	public void stopApplication() {
+		context.close();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public int listOffers() throws IOException {
+		return request(listURL + ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+	}
+
+	@Benchmark
+	@Threads(64)
+	public int getOffer() throws IOException {
+		return request(getURL + ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+	}
+
+	/**
+	 * wraps a jdbc object so that the connections and statements it creates 
+	 * are wrapped in turn and every statement execution waits for dbLatencyMs
+	 *
+	 * @param type	interface of the wrapped object
+	 * @param target	to be wrapped
+	 * @return the wrapped object
+	 */
+	private <T> T delayed(Class<T> type, Object target) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+			if (delayStatements && dbLatencyMs > 0 && target instanceof Statement 
+					&& method.getName().startsWith("execute")) {
+				Thread.sleep(dbLatencyMs);
+			}
+			Object result;
+			try {
+				result = method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			Class<?> returned = method.getReturnType();
+			if (result != null && returned.isInterface()
+					&& (Connection.class.isAssignableFrom(returned) || Statement.class.isAssignableFrom(returned))) {
+				return delayed(returned, result);
+			}
+			return result;
+		}));
+	}
+
+	/**
+	 * sends a GET request and reads the whole response
+	 *
+	 * @param url	to be requested
+	 * @return the number of bytes read
+	 * @throws IOException if the request fails or is not answered with 200
+	 */
+	private static int request(String url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		if (connection.getResponseCode() != 200) {
+			throw new IOException(String.format("%s answered %d", url, connection.getResponseCode()));
+		}
+		int read = 0;
+		byte[] buffer = new byte[8192];
+		try (InputStream body = connection.getInputStream()) {
+			for (int n; (n = body.read(buffer)) != -1; ) {
+				read += n;
+			}
+		}
+		return read;
+	}
+}
@@ -0,0 +1,103 @@
+package api;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import api.model.Offer;
+import api.model.OfferStatus;
+import api.model.Product;
+import api.repository.ProductRepository;
+
+/**
+ * JMH benchmarks of the create and get paths of the {@link OfferController}, 
+ * called in process without the HTTP layer
+ *
+ * <p>
+ * each outcome is measured on its own, including the product-missing and
+ * not-found outcomes answered with preallocated responses. Run with -prof gc
+ * to see the bytes allocated per request
+ *
+ * @author Samith Silva
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OfferControllerBenchmark {
+
+	//offer of the seed data, stored as expired hence never written by the benchmark
+	private static final long OFFER_ID = 100;
+
+	private ConfigurableApplicationContext context;
+	private OfferController controller;
+	private MockHttpServletRequest request;
+	private long productID;
+
+	@Setup(Level.Trial)
+	public void startContext() {
+		//passed as arguments, default properties would be overridden by application.properties
+		context = new SpringApplicationBuilder(Application.class)
+				.web(WebApplicationType.NONE)
+				.run("--spring.datasource.url=jdbc:h2:mem:offercontrollerbenchmark;DB_CLOSE_DELAY=-1",
+						"--logging.level.api=WARN",
+						"--offer.expiry.initial-delay-ms=86400000");
+		controller = context.getBean(OfferController.class);
+		request = new MockHttpServletRequest();
+
+		Product product = new Product();
+		product.setName("benchmark");
+		product.setDescription("benchmark");
+		productID = context.getBean(ProductRepository.class).save(product).getId();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopContext() {
+		context.close();
+	}
+
+	@Benchmark
+	public Object createOffer() {
+		return controller.createOfferHandler(newOffer(productID), request, null);
+	}
+
+	@Benchmark
+	public Object createOfferProductMissing() {
+		return controller.createOfferHandler(newOffer(-1), request, null);
+	}
+
+	@Benchmark
+	public Object getOffer() {
+		return controller.getOfferHandler(OFFER_ID, null, null, request, null);
+	}
+
+	@Benchmark
+	public Object getOfferNotFound() {
+		return controller.getOfferHandler(-1, null, null, request, null);
+	}
+
+	/**
+	 * @param productID	on which the offer is based
+	 * @return a new offer, created today and never saved
+	 */
+	private static Offer newOffer(long productID) {
+		Offer offer = new Offer("benchmark offer", new BigDecimal("100.00"), "GBP", null, 30, 
+				OfferStatus.UNDEFINED, productID);
+		offer.setCreatedDate(LocalDate.now());
+		return offer;
+	}
+}
@@ -0,0 +1,96 @@
+package api;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import api.model.Offer;
+import api.model.OfferStatus;
+import api.model.OfferPage;
+import api.model.OfferView;
+
+/**
+ * JMH benchmarks of the JSON serialization of offers as done by the {@link OfferController}
+ *
+ * <p>
+ * the object mapper is built with the same builder Spring Boot uses for
+ * the controller message converters, the page parameter sets the number
+ * of offers in a listed page (e.g. -p pageSize=500). Views of offers, as
+ * returned when a single offer is retrieved, are written by their own serializer
+ *
+ * @author Samith Silva
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OfferJsonBenchmark {
+
+	//number of offers in a serialized page
+	@Param({"50"})
+	private int pageSize;
+
+	private ObjectMapper objectMapper;
+	private Offer offer;
+	private OfferView view;
+	private OfferPage page;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		offer = newOffer(100);
+		view = new OfferView(offer.getId(), offer.getDescription(), offer.getPrice(), offer.getCurrencyCode(),
+				offer.getCreatedDate(), offer.getDaysValidFor(), offer.getProductID(), offer.getStatus(),
+				offer.getExpiresOn(), offer.getVersion());
+
+		List<Offer> offers = new ArrayList<Offer>(pageSize);
+		for (int i = 0; i < pageSize; i++) {
+			offers.add(newOffer(100 + i));
+		}
+		page = new OfferPage(offers, Long.valueOf(100 + pageSize));
+	}
+
+	@Benchmark
+	public byte[] writeOffer() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(offer);
+	}
+
+	@Benchmark
+	public byte[] writeOfferView() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(view);
+	}
+
+	@Benchmark
+	public byte[] writePage() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(page);
+	}
+
+	private static Offer newOffer(long id) {
+		Offer o = new Offer();
+		o.setId(id);
+		o.setProductID(4621346L);
+		o.setDescription("Summer Sale");
+		o.setPrice(new BigDecimal("550"));
+		o.setCurrencyCode("GBP");
+		o.setCreatedDate(LocalDate.now());
+		o.setDaysValidFor(90);
+		o.setStatus(OfferStatus.VALID);
+		return o;
+	}
+}
@@ -0,0 +1,194 @@
+package api.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import api.Application;
+import api.model.Offer;
+import api.model.OfferStatus;
+import api.model.OfferBatchResult;
+import api.model.OfferCancellation;
+import api.model.OfferCreationResult;
+import api.model.OfferView;
+import api.model.Product;
+import api.repository.OfferRepository;
+import api.repository.ProductRepository;
+
+/**
+ * JMH benchmarks of the {@link OfferService} hot paths against the embedded H2 db
+ *
+ * <p>
+ * the application context is started once per fork without the web layer
+ * and the db is seeded with the number of offers set by the offers parameter,
+ * which can be changed from the command line (e.g. -p offers=100000)
+ *
+ * @author Samith Silva
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OfferServiceBenchmark {
+
+	//number of offers saved in the db before the benchmarks are run
+	@Param({"10000"})
+	private int offers;
+
+	private ConfigurableApplicationContext context;
+	private OfferService offerService;
+	private OfferCache offerCache;
+	private OfferRepository offerRepository;
+	private JdbcTemplate jdbcTemplate;
+
+	//id of the product the offers are created for
+	private long productID;
+
+	//ids of the seeded offers
+	private long[] ids;
+
+	//position of the next offer to be cancelled
+	private final AtomicInteger nextCancel = new AtomicInteger();
+
+	//offers checked in memory only, never saved
+	private Offer validOffer;
+	private Offer expiredOffer;
+
+	@Setup(Level.Trial)
+	public void startContext() {
+		context = new SpringApplicationBuilder(Application.class)
+				.web(WebApplicationType.NONE)
+				.properties("spring.datasource.url=jdbc:h2:mem:offerbenchmark;DB_CLOSE_DELAY=-1",
+						"logging.level.api=WARN",
+						"offer.expiry.initial-delay-ms=86400000")
+				.run();
+		offerService = context.getBean(OfferService.class);
+		offerCache = context.getBean(OfferCache.class);
+		offerRepository = context.getBean(OfferRepository.class);
+		jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+		Product product = new Product();
+		product.setName("benchmark");
+		product.setDescription("benchmark");
+		productID = context.getBean(ProductRepository.class).save(product).getId();
+
+		List<Offer> seed = new ArrayList<Offer>(offers);
+		for (int i = 0; i < offers; i++) {
+			seed.add(newOffer("seeded offer " + i, 30));
+		}
+		ids = new long[offers];
+		int i = 0;
+		for (OfferBatchResult result : offerService.createOffers(seed, 0)) {
+			if (result.getId() == null) {
+				throw new IllegalStateException(String.format("offer %d could not be seeded: %s", 
+						result.getIndex(), result.getError()));
+			}
+			ids[i++] = Long.parseLong(result.getId());
+		}
+
+		validOffer = newOffer("valid offer", 30);
+		validOffer.setStatus(OfferStatus.VALID);
+		expiredOffer = newOffer("expired offer", 30);
+		expiredOffer.setCreatedDate(LocalDate.now().minusDays(60));
+	}
+
+	/**
+	 * puts back the seeded offers cancelled in the previous iteration
+	 * so that each iteration cancels valid offers
+	 */
+	@Setup(Level.Iteration)
+	public void resetStatuses() {
+		jdbcTemplate.update("update offer set status = ? where status = ?",
+				String.valueOf(OfferStatus.VALID.getCode()), String.valueOf(OfferStatus.CANCELLED.getCode()));
+		nextCancel.set(0);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopContext() {
+		context.close();
+	}
+
+	@Benchmark
+	public OfferCreationResult createOffer() {
+		return offerService.createOffer(newOffer("created offer", 30));
+	}
+
+	@Benchmark
+	public OfferView getOffer() {
+		return offerService.getOffer(randomId());
+	}
+
+	@Benchmark
+	public OfferView getOfferUncached() {
+		long id = randomId();
+		offerCache.invalidate(id);
+		return offerService.getOffer(id);
+	}
+
+	/**
+	 * loads a managed offer, as read before offers were retrieved as views
+	 */
+	@Benchmark
+	public Offer loadOfferEntity() {
+		return offerRepository.findById(randomId()).orElse(null);
+	}
+
+	@Benchmark
+	public OfferView loadOfferView() {
+		return offerRepository.findViewById(randomId());
+	}
+
+	/**
+	 * once every seeded offer has been cancelled within an iteration,
+	 * further calls measure cancelling an already cancelled offer
+	 */
+	@Benchmark
+	public OfferCancellation cancelOffer() {
+		return offerService.cancelOffer(ids[nextCancel.getAndIncrement() % ids.length]);
+	}
+
+	@Benchmark
+	public Offer checkStatusValid() {
+		return offerService.checkStatus(validOffer);
+	}
+
+	@Benchmark
+	public Offer checkStatusExpired() {
+		expiredOffer.setStatus(OfferStatus.VALID);
+		return offerService.checkStatus(expiredOffer);
+	}
+
+	private long randomId() {
+		return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+	}
+
+	private Offer newOffer(String description, int daysValidFor) {
+		Offer o = new Offer();
+		o.setProductID(productID);
+		o.setDescription(description);
+		o.setPrice(new BigDecimal("100"));
+		o.setCurrencyCode("EUR");
+		o.setCreatedDate(LocalDate.now());
+		o.setDaysValidFor(daysValidFor);
+		return o;
+	}
+}
@@ -0,0 +1,71 @@
+package api;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Tags every log line written while handling a request with its correlation id
+ *
+ * <p>
+ * the id is taken from the X-Correlation-ID request header, or generated
+ * when missing or malformed, put in the logging MDC under correlationId
+ * and sent back in the response header of the same name. The id is kept
+ * as a request attribute so that the async dispatch of a request handed
+ * over to the executor logs under the same id
+ *
+ * @author Samith Silva
+ *
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelationIdFilter extends OncePerRequestFilter {
+
+	public static final String HEADER = "X-Correlation-ID";
+
+	public static final String MDC_KEY = "correlationId";
+
+	//request attribute holding the id across the dispatches of a request
+	private static final String ATTRIBUTE = CorrelationIdFilter.class.getName() + ".ID";
+
+	//ids accepted from clients, anything else could forge log lines
+	private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String id = (String) request.getAttribute(ATTRIBUTE);
+		if (id == null) {
+			id = request.getHeader(HEADER);
+			if (id == null || !VALID_ID.matcher(id).matches()) {
+				id = Long.toHexString(ThreadLocalRandom.current().nextLong());
+			}
+			request.setAttribute(ATTRIBUTE, id);
+			response.setHeader(HEADER, id);
+		}
+
+		MDC.put(MDC_KEY, id);
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			MDC.remove(MDC_KEY);
+		}
+	}
+
+	//the async dispatch of a request runs on another container thread, without the MDC
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+}
@@ -0,0 +1,41 @@
+package api;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.actuate.metrics.web.servlet.DefaultWebMvcTagsProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Tags the request metrics with the name of the end point handling the request
+ *
+ * <p>
+ * on top of the default uri, method, status and exception tags, so that
+ * the latency and error counts of each end point (e.g. getOfferHandler)
+ * can be looked up by its handler name
+ *
+ * @author Samith Silva
+ *
+ */
+@Component
+public class HandlerTagsProvider extends DefaultWebMvcTagsProvider {
+
+	private static final Tag NO_HANDLER = Tag.of("handler", "none");
+
+	@Override
+	public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Throwable exception) {
+		return Tags.of(super.getTags(request, response, handler, exception)).and(handlerTag(handler));
+	}
+
+	private static Tag handlerTag(Object handler) {
+		if (handler instanceof HandlerMethod) {
+			return Tag.of("handler", ((HandlerMethod) handler).getMethod().getName());
+		}
+		return NO_HANDLER;
+	}
+}
@@ -1,17 +1,25 @@
 package api;
 
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.util.HashMap;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -19,15 +27,51 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import api.model.ApiError;
 import api.model.Offer;
+import api.model.OfferBatchResult;
+import api.model.OfferBulkCancel;
+import api.model.OfferBulkCancelResult;
+import api.model.OfferCreationResult;
+import api.model.OfferFilter;
+import api.model.OfferPage;
+import api.model.OfferStatus;
+import api.model.OfferView;
+import api.model.RateTable;
+import api.service.ExchangeRates;
+import api.service.OfferEventBroadcaster;
 import api.service.OfferService;
+import api.service.OfferSummaryIndex;
+import api.service.ProductCache;
+import api.util.CsvOfferWriter;
+import api.util.LogSampler;
+import api.util.NdjsonOfferWriter;
+import api.util.OfferETags;
+import api.util.OfferWriter;
 
 /**
  * RESTful API end points
  * 
+ * <p>
+ * exceptions thrown by the end points are mapped to error responses 
+ * by the {@link OfferExceptionHandler}
+ * 
+ * <p>
+ * end points return either their response or, in async execution mode, 
+ * a CompletableFuture of it, see {@link OfferRequestExecutor}. The NDJSON
+ * batch end point always runs on the request thread as it reads its body
+ * while offers are saved
+ * 
  * @author Samith Silva
  *
  */
@@ -38,12 +82,69 @@ public class OfferController implements ApplicationEventPublisherAware{
     protected ApplicationEventPublisher eventPublisher;
 
     protected final Logger log = LoggerFactory.getLogger(this.getClass());
-    
-    //used to store stacktrace in the logs in case of failures
-	private StringWriter errors = new StringWriter();
 
     @Autowired
     private OfferService offerService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private OfferRequestExecutor requestExecutor;
+    
+    @Autowired
+    private ExchangeRates exchangeRates;
+    
+    @Autowired
+    private OfferEventBroadcaster offerEventBroadcaster;
+    
+    @Autowired
+    private ProductCache productCache;
+    
+    @Autowired
+    private OfferSummaryIndex offerSummaryIndex;
+    
+    //maximum number of offers returned in a single page
+    @Value("${offer.list.max-limit:500}")
+    private int maxLimit;
+    
+    //milliseconds after which an export still being written is aborted
+    @Value("${offer.export.timeout-ms:600000}")
+    private long exportTimeout;
+    
+    //number of NDJSON offers read before being handed over to be saved
+    @Value("${offer.batch.chunk-size:500}")
+    private int chunkSize;
+    
+    //decides which success-path log lines are written
+    private LogSampler successLogSampler = new LogSampler(1);
+    
+    //value of the expand parameter returning offers along with their product
+    private static final String EXPAND_PRODUCT = "product";
+    
+    //immutable responses shared by every request hitting the same outcome
+    private static final ResponseEntity<Object> CURRENCY_INVALID_RESPONSE = new ResponseEntity<Object>(
+    		new ApiError("currencyCode must be an ISO 4217 currency code"), HttpStatus.BAD_REQUEST);
+    private static final ResponseEntity<Object> PRODUCT_MISSING_RESPONSE = new ResponseEntity<Object>(
+    		new ApiError("specified productID does not exist in db"), HttpStatus.BAD_REQUEST);
+    private static final ResponseEntity<Object> PERSISTENCE_FAILED_RESPONSE = new ResponseEntity<Object>(
+    		new ApiError("offer failed to be saved into the db"), HttpStatus.INTERNAL_SERVER_ERROR);
+    private static final ResponseEntity<Object> NOT_FOUND_RESPONSE = new ResponseEntity<Object>(HttpStatus.NOT_FOUND);
+    private static final ResponseEntity<Object> NO_CONTENT_RESPONSE = new ResponseEntity<Object>(HttpStatus.NO_CONTENT);
+    private static final ResponseEntity<Object> NOT_CANCELLABLE_RESPONSE = new ResponseEntity<Object>(
+    		new ApiError("expired offers cannot be cancelled"), HttpStatus.CONFLICT);
+    private static final ResponseEntity<Object> PRECONDITION_FAILED_RESPONSE = new ResponseEntity<Object>(
+    		new ApiError("offer has changed since it was read"), HttpStatus.PRECONDITION_FAILED);
+    //responses of the event stream end point carry no body, it could not be written as an event stream
+    private static final ResponseEntity<Object> STREAM_PRODUCT_MISSING_RESPONSE = new ResponseEntity<Object>(
+    		HttpStatus.BAD_REQUEST);
+    private static final ResponseEntity<Object> STREAMS_EXHAUSTED_RESPONSE = ResponseEntity
+    		.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    private static final ResponseEntity<Object> EXPAND_INVALID_RESPONSE = new ResponseEntity<Object>(
+    		new ApiError("expand must be one of [product]"), HttpStatus.BAD_REQUEST);
+    private static final ResponseEntity<Object> BULK_CANCEL_INVALID_RESPONSE = new ResponseEntity<Object>(
+    		new ApiError("either ids or at least one of productID, status and currencyCode must be set"), 
+    		HttpStatus.BAD_REQUEST);
 
     /**
      * End point utilised to create a new Offer
@@ -51,10 +152,10 @@ public class OfferController implements ApplicationEventPublisherAware{
      * @param offer is the offer to be created and saved into the db
      * @param request	HTTP request to create a new offer
      * @param response	201 CREATED on success, 400 BAD REQUEST if 
-     * passed offer is not correct (e.g. productID does not exist), 
+     * passed offer is not correct (e.g. productID does not exist or currencyCode is not an ISO 4217 code), 
      * 500 INTERNAL_SERVER_ERROR if the offer could not be saved in db or
-     * in case of exception
-     * @return id of the newly created offer or empty object otherwise
+     * in case of exception (handled by {@link OfferExceptionHandler})
+     * @return id of the newly created offer or error otherwise
      */
     @RequestMapping(value = "",
             method = RequestMethod.POST,
@@ -62,58 +163,179 @@ public class OfferController implements ApplicationEventPublisherAware{
             produces = {"application/json"})
     @ResponseStatus(HttpStatus.CREATED)
     public
-    @ResponseBody ResponseEntity<Object>
+    @ResponseBody Object
     createOfferHandler (@RequestBody Offer offer, HttpServletRequest request, HttpServletResponse response) {
-    	log.info(String.format("createOfferHandler(): offer received to be created", Long.toString(offer.getId())));
+    	if (log.isDebugEnabled()) {
+    		log.debug("createOfferHandler(): offer received to be created productId={}", offer.getProductID());
+    	}
         
-    	HashMap<String, String> map = new HashMap<String, String>();
+    	return requestExecutor.execute(() -> {
+	    	OfferCreationResult result = this.offerService.createOffer(offer);
     	
-    	String errorMsg = "";
+	    	switch (result.getOutcome()) {
+	    	case CURRENCY_INVALID:
+		        if (log.isInfoEnabled()) {
+		        	log.info("createOfferHandler(): specified currencyCode is not valid currencyCode={}", offer.getCurrencyCode());
+		        }
+				return CURRENCY_INVALID_RESPONSE;
+	    	case PRODUCT_MISSING:
+		        if (log.isInfoEnabled()) {
+		        	log.info("createOfferHandler(): specified productID does not exist in db productId={}", offer.getProductID());
+		        }
+				return PRODUCT_MISSING_RESPONSE;
+	    	case PERSISTENCE_FAILED:
+		        if (log.isInfoEnabled()) {
+		        	log.info("createOfferHandler(): offer failed to be saved into the db productId={}", offer.getProductID());
+		        }
+				return PERSISTENCE_FAILED_RESPONSE;
+			default:
+		    	//on success, send back id of newly created offer
+		        if (logSuccess()) {
+		        	log.info("createOfferHandler(): offer has been created successfully offerId={} productId={}", 
+		        			result.getOfferID(), offer.getProductID());
+		        }
+				return new ResponseEntity<Object>(Collections.singletonMap("id", Long.toString(result.getOfferID())), HttpStatus.CREATED);
+	    	}
+    	});
+    }
+    
+
+    /**
+     * End point utilised to create a batch of Offers sent as a json array
+     * 
+     * @param offers are the offers to be created and saved into the db
+     * @param request	HTTP request to create the offers
+     * @param response	200 STATUS_OK once every offer has been processed, 
+     * 500 INTERNAL_SERVER_ERROR in case of exception
+     * @return result of each offer, in the same order as the received offers
+     */
+    @RequestMapping(value = "/batch",
+            method = RequestMethod.POST,
+            consumes = {"application/json"},
+            produces = {"application/json"})
+    public
+    @ResponseBody Object
+    createOffersHandler (@RequestBody List<Offer> offers, HttpServletRequest request, HttpServletResponse response) {
+    	if (log.isDebugEnabled()) {
+    		log.debug("createOffersHandler(): offers received to be created count={}", offers.size());
+    	}
     	
-    	//used to retrieve the auto generated offer id from the db
-    	long createdOfferID = 0;
+    	return requestExecutor.execute(() -> {
+	    	List<OfferBatchResult> results = this.offerService.createOffers(offers, 0);
     	
-    	try {
-	    	createdOfferID = this.offerService.createOffer(offer);
-	    	//CHECK INTERNAL ERROR CODES
-	    	//check whether the passed product ID exists in db 
-	    	if (createdOfferID == -400) {
-	    		errorMsg = "specified productID does not exist in db";
-		        log.info(String.format("createOfferHandler(): %s", errorMsg));
-		        map.put("error:", errorMsg);
-				return new ResponseEntity<Object>(map, HttpStatus.BAD_REQUEST);
-	    	}
-	    	
-	    	//check whether it has been saved successfully into the db
-	    	if (createdOfferID == -500) {
-	    		errorMsg = "offer failed to be saved into the db";
-		        log.info(String.format("createOfferHandler(): %s", errorMsg));
-		        map.put("error:", errorMsg);
-				return new ResponseEntity<Object>(map, HttpStatus.INTERNAL_SERVER_ERROR);
-	    	}
-	    	
-		} catch (Exception e) {
-    		errorMsg = String.format("offer %s could not be created, stacktrace: %s", Long.toString(createdOfferID), errors);
-	        log.info(String.format("createOfferHandler(): %s", errorMsg));
-	        map.put("error:", "exception thrown in internal createOfferHandler(), please contact Samith Silva");
-			return new ResponseEntity<Object>(map, HttpStatus.INTERNAL_SERVER_ERROR);
-		}
+	        if (logSuccess()) {
+	        	log.info("createOffersHandler(): offers processed count={}", results.size());
+	        }
+			return new ResponseEntity<Object>(results, HttpStatus.OK);
+    	});
+    }
+    
+    /**
+     * End point utilised to create a batch of Offers streamed as NDJSON, one offer per line
+     * 
+     * <p>
+     * the body is read and saved chunk by chunk and the results of each chunk
+     * are streamed back as NDJSON once it is saved, hence neither the received 
+     * offers nor their results are held in memory beyond a chunk. Lines which 
+     * cannot be read as an offer are reported as bad requests
+     * 
+     * @param request	HTTP request to create the offers
+     * @param response	200 STATUS_OK streaming the result of each offer, one per line 
+     * in the same order as the received lines. The status is sent with the first 
+     * chunk, a later failure aborts the response
+     * @throws IOException if the body cannot be read or the results cannot be written
+     */
+    @RequestMapping(value = "/batch",
+            method = RequestMethod.POST,
+            consumes = {"application/x-ndjson"},
+            produces = {"application/x-ndjson"})
+    public void
+    createOffersFromStreamHandler (HttpServletRequest request, HttpServletResponse response) throws IOException {
+    	log.debug("createOffersFromStreamHandler(): offers stream received to be created");
     	
-    	//on success, send back id of newly created offer
-        log.info(String.format("createOfferHandler(): offer %s has been created successfully", Long.toString(createdOfferID)));
-        
-    	map.put("id", Long.toString(createdOfferID));
+    	ObjectReader reader = objectMapper.readerFor(Offer.class);
+    	List<Offer> chunk = new ArrayList<Offer>(chunkSize);
+    	int count = 0;
+    	
+    	response.setContentType(NdjsonOfferWriter.CONTENT_TYPE);
+    	response.setCharacterEncoding("UTF-8");
+    	JsonGenerator results = objectMapper.getFactory().createGenerator(response.getOutputStream());
+    	results.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    	//lines are separated by the handler, not by the generator
+    	results.setRootValueSeparator(null);
     	
-		return new ResponseEntity<Object>(map, HttpStatus.CREATED);
+    	try (BufferedReader body = request.getReader()) {
+    		String line;
+    		while ((line = body.readLine()) != null) {
+    			if (line.trim().isEmpty()) {
+    				continue;
+    			}
+    			chunk.add(readOffer(reader, line));
+    			if (chunk.size() == chunkSize) {
+    				count += writeResults(results, this.offerService.createOffers(chunk, count));
+    				chunk.clear();
+    			}
+    		}
+    		if (!chunk.isEmpty()) {
+    			count += writeResults(results, this.offerService.createOffers(chunk, count));
+    		}
+		}
+    	
+        if (logSuccess()) {
+        	log.info("createOffersFromStreamHandler(): offers processed count={}", count);
+        }
+    }
+    
+    /**
+     * writes the results of a saved chunk, one per line, and flushes them to the client
+     * 
+     * @param generator	the results are written to
+     * @param results	of the offers of the chunk
+     * @return the number of results written
+     * @throws IOException if the results cannot be written, e.g. the client went away
+     */
+    private static int writeResults(JsonGenerator generator, List<OfferBatchResult> results) throws IOException {
+    	for (OfferBatchResult result : results) {
+    		generator.writeObject(result);
+    		generator.writeRaw('\n');
+    	}
+    	generator.flush();
+    	return results.size();
     }
     
+    /**
+     * reads an offer from a single NDJSON line
+     * 
+     * @param reader	json reader of offers
+     * @param line	to be read
+     * @return the offer read, null if the line is not a valid offer
+     */
+    private Offer readOffer(ObjectReader reader, String line) {
+    	try {
+			return reader.readValue(line);
+		} catch (IOException e) {
+			return null;
+		}
+    }
 
     /**
      * End point utilised to retrieve an Offer
      * 
+     * <p>
+     * the offer is sent with its ETag, a request whose If-None-Match header
+     * matches it is answered without body. Offers expanded with their product
+     * are read along with it by a single query and are not tagged, products 
+     * carry no version. An offer priced in a currency missing from the rates
+     * is not returned unconverted when a currency is requested
+     * 
      * @param id of the wanted offer
+     * @param currency	optional currency the price of the offer is converted to
+     * @param expand	optional, product to return the offer along with its product
      * @param request HTTP request to retrieve the offer
-     * @param response 200 STATUS_OK on success, 404 NOT_FOUND if the offer is not found
+     * @param response 200 STATUS_OK on success, 304 NOT_MODIFIED if the client copy
+     * is up to date, 400 BAD_REQUEST if the currency or the expand are not supported, 
+     * 404 NOT_FOUND if the offer is not found, 422 UNPROCESSABLE_ENTITY if the price
+     * of the offer cannot be converted to the currency,
      * 500 INTERNAL_SERVER_ERROR in case of thrown exception
      * @return	the requested offer on success, empty otherwise
      */
@@ -121,63 +343,486 @@ public class OfferController implements ApplicationEventPublisherAware{
             method = RequestMethod.GET,
             produces = {"application/json"})
     public
-    @ResponseBody ResponseEntity<Object>
-    getOfferHandler(@PathVariable("id") long id, HttpServletRequest request, HttpServletResponse response) {
-    	log.info(String.format("getOfferHandler(): offer %s received to be retrieved", Long.toString(id)));
-    	
-    	Offer returnedOffer = new Offer();
-    	
-	    try {
-	    	returnedOffer = this.offerService.getOffer(id);
-	        
-	        if (returnedOffer.getId() == 0) {
-	           log.info(String.format("getOfferHandler(): offer %x not found", id));
-	           return new ResponseEntity<Object>(null, HttpStatus.NOT_FOUND);
+    @ResponseBody Object
+    getOfferHandler(@PathVariable("id") long id, 
+    		@RequestParam(value = "currency", required = false) String currency,
+    		@RequestParam(value = "expand", required = false) String expand,
+    		HttpServletRequest request, HttpServletResponse response) {
+    	if (log.isDebugEnabled()) {
+    		log.debug("getOfferHandler(): offer received to be retrieved offerId={} currency={} expand={}", 
+    				id, currency, expand);
+    	}
+    	
+    	boolean withProduct = EXPAND_PRODUCT.equals(expand);
+    	if (expand != null && !withProduct) {
+    		return EXPAND_INVALID_RESPONSE;
+    	}
+    	
+    	//a single snapshot of the rates is used for the whole request
+    	RateTable rates = exchangeRates.getTable();
+    	if (currency != null && !rates.supports(currency)) {
+    		return unsupportedCurrency(rates);
+    	}
+    	
+    	String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+    	if (withProduct) {
+    		return requestExecutor.execute(() -> getOfferWithProduct(id, currency, rates));
+    	}
+    	return requestExecutor.execute(() -> {
+	    	OfferView returnedOffer = this.offerService.getOffer(id);
+        
+	        if (returnedOffer == null) {
+	           if (log.isInfoEnabled()) {
+	        	   log.info("getOfferHandler(): offer not found offerId={}", id);
+	           }
+	           return NOT_FOUND_RESPONSE;
 	        }
-	        
-		} catch (Exception e) {
-			e.printStackTrace(new PrintWriter(errors));
-	        log.info(String.format("getOfferHandler(): offer %s could not be retrieved, stacktrace: %s", Long.toString(id), errors));
-			return new ResponseEntity<Object>(null, HttpStatus.INTERNAL_SERVER_ERROR); 
-		}
-        log.info(String.format("getOfferHandler(): offer %x was succesffuly found status: %s", id, returnedOffer.getStatus()));
-        return new ResponseEntity<Object>(returnedOffer, HttpStatus.OK);
+	        if (currency != null && !rates.supports(returnedOffer.getCurrencyCode())) {
+	        	return notConvertible(returnedOffer.getCurrencyCode(), currency);
+	        }
+        
+	        HttpHeaders headers = new HttpHeaders();
+	        headers.setETag(currency == null ? OfferETags.of(returnedOffer) 
+	        		: OfferETags.of(returnedOffer, currency, rates.getVersion()));
+	        //the offer is not serialised again when the client already holds it
+	        if (OfferETags.matches(ifNoneMatch, headers.getETag())) {
+	        	return new ResponseEntity<Object>(headers, HttpStatus.NOT_MODIFIED);
+	        }
+	        //the returned offer may be cached, hence it is converted into a copy
+	        if (currency != null) {
+	        	returnedOffer = rates.convert(returnedOffer, currency);
+	        }
+        
+	        if (logSuccess()) {
+	        	log.info("getOfferHandler(): offer was successfully found offerId={} status={}", id, returnedOffer.getStatus());
+	        }
+	        return new ResponseEntity<Object>(returnedOffer, headers, HttpStatus.OK);
+    	});
+    }
+    
+    /**
+     * retrieves an offer along with its product, untagged
+     * 
+     * @param id of the wanted offer
+     * @param currency	optional currency the price of the offer is converted to
+     * @param rates	to convert the price with
+     * @return the offer on success, 404 NOT_FOUND if the offer is not found,
+     * 422 UNPROCESSABLE_ENTITY if its price cannot be converted to the currency
+     */
+    private ResponseEntity<Object> getOfferWithProduct(long id, String currency, RateTable rates) {
+    	Offer returnedOffer = this.offerService.getOfferWithProduct(id);
+    	if (returnedOffer == null) {
+    		if (log.isInfoEnabled()) {
+    			log.info("getOfferWithProduct(): offer not found offerId={}", id);
+    		}
+    		return NOT_FOUND_RESPONSE;
+    	}
+    	if (currency != null) {
+    		if (!rates.supports(returnedOffer.getCurrencyCode())) {
+    			return notConvertible(returnedOffer.getCurrencyCode(), currency);
+    		}
+    		returnedOffer = rates.convert(returnedOffer, currency);
+    	}
+    	
+    	if (logSuccess()) {
+    		log.info("getOfferWithProduct(): offer was successfully found offerId={} status={}", id, returnedOffer.getStatus());
+    	}
+    	return new ResponseEntity<Object>(returnedOffer, HttpStatus.OK);
+    }
+	
+    /**
+     * @param rates	the currency was checked against
+     * @return the response to a request for a currency which is not in the rates
+     */
+    private ResponseEntity<Object> unsupportedCurrency(RateTable rates) {
+    	return new ResponseEntity<Object>(new ApiError(
+    			String.format("currency must be one of %s", rates.getCurrencies())), HttpStatus.BAD_REQUEST);
+    }
+    
+    /**
+     * @param from	currency an offer is priced in, missing from the rates
+     * @param to	currency requested by the client
+     * @return the response to a request for offers whose price cannot be converted
+     */
+    private static ResponseEntity<Object> notConvertible(String from, String to) {
+    	return new ResponseEntity<Object>(new ApiError(String.format("prices in %s cannot be converted to %s, "
+    			+ "filter the offers by currencyCode to leave them out", from, to)), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+	
+	
+    /**
+     * End point utilised to list Offers
+     * 
+     * <p>
+     * offers are returned in pages ordered by id, the nextCursor of a page 
+     * must be passed as the after parameter to retrieve the following page
+     * 
+     * @param productID	optional id of the product on which the offers are based
+     * @param status	optional status of the offers
+     * @param currencyCode	optional currency code of the offers' price
+     * @param minPrice	optional minimum price of the offers, inclusive
+     * @param maxPrice	optional maximum price of the offers, inclusive
+     * @param after	id after which the page starts, 0 for the first page
+     * @param limit	maximum number of offers in the page
+     * @param currency	optional currency the prices of the offers are converted to, 
+     * filters on currencyCode and price still apply to the stored prices. A page is
+     * never returned in mixed currencies, it is rejected if any of its offers is
+     * priced in a currency missing from the rates
+     * @param expand	optional, product to return the offers along with their products, 
+     * read by the same query as the offers
+     * @param request HTTP request to list the offers
+     * @param response 200 STATUS_OK on success, 400 BAD_REQUEST if the status,
+     * the limit, the currency or the expand are not valid, 422 UNPROCESSABLE_ENTITY if the price
+     * of an offer in the page cannot be converted to the currency, 500 INTERNAL_SERVER_ERROR in case 
+     * of thrown exception
+     * @return	the page of offers on success, empty otherwise
+     */
+	@RequestMapping(value = "",
+            method = RequestMethod.GET,
+            produces = {"application/json"})
+    public
+    @ResponseBody Object
+    listOffersHandler(@RequestParam(value = "productID", required = false) Long productID,
+    		@RequestParam(value = "status", required = false) String status,
+    		@RequestParam(value = "currencyCode", required = false) String currencyCode,
+    		@RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+    		@RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+    		@RequestParam(value = "after", defaultValue = "0") long after,
+    		@RequestParam(value = "limit", defaultValue = "50") int limit,
+    		@RequestParam(value = "currency", required = false) String currency,
+    		@RequestParam(value = "expand", required = false) String expand,
+    		HttpServletRequest request, HttpServletResponse response) {
+    	if (log.isDebugEnabled()) {
+    		log.debug("listOffersHandler(): offers received to be listed after={} productId={} status={} expand={}", 
+    				after, productID, status, expand);
+    	}
+    	
+    	OfferStatus filterStatus = status == null ? null : OfferStatus.fromLabel(status);
+    	if (status != null && filterStatus == null) {
+			return new ResponseEntity<Object>(new ApiError(
+					String.format("status must be one of %s", Arrays.toString(OfferStatus.values()))), 
+					HttpStatus.BAD_REQUEST);
+    	}
+    	
+    	if (limit < 1 || limit > maxLimit) {
+			return new ResponseEntity<Object>(new ApiError(
+					String.format("limit must be between 1 and %d", maxLimit)), HttpStatus.BAD_REQUEST);
+    	}
+    	
+    	RateTable rates = exchangeRates.getTable();
+    	if (currency != null && !rates.supports(currency)) {
+    		return unsupportedCurrency(rates);
+    	}
+    	
+    	boolean withProduct = EXPAND_PRODUCT.equals(expand);
+    	if (expand != null && !withProduct) {
+    		return EXPAND_INVALID_RESPONSE;
+    	}
+    	
+    	return requestExecutor.execute(() -> {
+	    	OfferPage page = this.offerService.listOffers(
+	    			new OfferFilter(productID, filterStatus, currencyCode, minPrice, maxPrice), after, limit, 
+	    			withProduct);
+	    	if (currency != null) {
+	    		for (Offer offer : page.getOffers()) {
+	    			if (!rates.supports(offer.getCurrencyCode())) {
+	    				return notConvertible(offer.getCurrencyCode(), currency);
+	    			}
+	    		}
+	    		page = convert(page, rates, currency);
+	    	}
+    	
+	        if (logSuccess()) {
+	        	log.info("listOffersHandler(): offers listed count={} after={}", page.getOffers().size(), after);
+	        }
+	        return new ResponseEntity<Object>(page, HttpStatus.OK);
+    	});
+    }
+	
+    /**
+     * @param page	of offers as listed
+     * @param rates	to convert the prices with
+     * @param currency	the prices are converted to
+     * @return a page holding the offers of the passed one priced in the passed currency
+     */
+    private static OfferPage convert(OfferPage page, RateTable rates, String currency) {
+    	List<Offer> offers = new ArrayList<Offer>(page.getOffers().size());
+    	for (Offer offer : page.getOffers()) {
+    		offers.add(rates.convert(offer, currency));
+    	}
+    	return new OfferPage(offers, page.getNextCursor());
+    }
+	
+	
+    /**
+     * End point utilised to export Offers
+     * 
+     * <p>
+     * every offer matching the filter is streamed in ascending id order, 
+     * the offers are written while they are read from the db, on the async 
+     * executor of the servlet container, so that the response starts before 
+     * the last offer is read and its size is not bounded by memory
+     * 
+     * @param productID	optional id of the product on which the offers are based
+     * @param status	optional status of the offers
+     * @param currencyCode	optional currency code of the offers' price
+     * @param minPrice	optional minimum price of the offers, inclusive
+     * @param maxPrice	optional maximum price of the offers, inclusive
+     * @param format	ndjson (default) or csv
+     * @param request HTTP request to export the offers
+     * @param response 200 STATUS_OK streaming the offers, 400 BAD_REQUEST if the status
+     * or the format are not valid, 500 INTERNAL_SERVER_ERROR in case of thrown exception
+     * before the first offer is written
+     * @return the task writing the offers on success, error otherwise
+     */
+	@RequestMapping(value = "/export",
+            method = RequestMethod.GET)
+    public
+    @ResponseBody Object
+    exportOffersHandler(@RequestParam(value = "productID", required = false) Long productID,
+    		@RequestParam(value = "status", required = false) String status,
+    		@RequestParam(value = "currencyCode", required = false) String currencyCode,
+    		@RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+    		@RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+    		@RequestParam(value = "format", defaultValue = "ndjson") String format,
+    		HttpServletRequest request, HttpServletResponse response) {
+    	if (log.isDebugEnabled()) {
+    		log.debug("exportOffersHandler(): offers received to be exported format={} productId={} status={}", 
+    				format, productID, status);
+    	}
+    	
+    	OfferStatus filterStatus = status == null ? null : OfferStatus.fromLabel(status);
+    	if (status != null && filterStatus == null) {
+			return new ResponseEntity<Object>(new ApiError(
+					String.format("status must be one of %s", Arrays.toString(OfferStatus.values()))), 
+					HttpStatus.BAD_REQUEST);
+    	}
+    	
+    	boolean csv = "csv".equals(format);
+    	if (!csv && !"ndjson".equals(format)) {
+			return new ResponseEntity<Object>(new ApiError("format must be one of [ndjson, csv]"), 
+					HttpStatus.BAD_REQUEST);
+    	}
+    	
+    	OfferFilter filter = new OfferFilter(productID, filterStatus, currencyCode, minPrice, maxPrice);
+    	response.setContentType(csv ? CsvOfferWriter.CONTENT_TYPE : NdjsonOfferWriter.CONTENT_TYPE);
+    	response.setCharacterEncoding("UTF-8");
+    	response.setHeader(HttpHeaders.CONTENT_DISPOSITION, String.format("attachment; filename=\"offers.%s\"", format));
+    	
+    	return new WebAsyncTask<Void>(exportTimeout, () -> {
+    		OutputStream out = response.getOutputStream();
+    		OfferWriter writer = csv ? new CsvOfferWriter(out) : new NdjsonOfferWriter(out, objectMapper);
+    		long count = this.offerService.exportOffers(filter, writer);
+    		
+	        if (logSuccess()) {
+	        	log.info("exportOffersHandler(): offers exported count={} format={}", count, format);
+	        }
+    		//the response has been written, there is no body left to render
+    		return null;
+    	});
+    }
+	
+	
+    /**
+     * End point utilised to summarise the active Offers of a product
+     * 
+     * <p>
+     * the summary is served from the {@link OfferSummaryIndex} without querying 
+     * the offers, it reflects changes once the event dispatcher delivered them
+     * 
+     * @param productID	id of the product on which the offers are based
+     * @param request HTTP request to summarise the offers
+     * @param response 200 STATUS_OK on success, 400 BAD_REQUEST if the product does not exist,
+     * 500 INTERNAL_SERVER_ERROR in case of thrown exception
+     * @return the number of active offers, their price range by currency and 
+     * their next expiry date on success, error otherwise
+     */
+	@RequestMapping(value = "/summary",
+            method = RequestMethod.GET,
+            produces = {"application/json"})
+    public
+    @ResponseBody Object
+    summariseOffersHandler(@RequestParam(value = "productID") long productID,
+    		HttpServletRequest request, HttpServletResponse response) {
+    	if (log.isDebugEnabled()) {
+    		log.debug("summariseOffersHandler(): offers received to be summarised productId={}", productID);
+    	}
+    	
+    	return requestExecutor.execute(() -> {
+	    	if (!productCache.exists(productID)) {
+		        if (log.isInfoEnabled()) {
+		        	log.info("summariseOffersHandler(): specified productID does not exist in db productId={}", productID);
+		        }
+	    		return PRODUCT_MISSING_RESPONSE;
+	    	}
+	    	
+	        return new ResponseEntity<Object>(offerSummaryIndex.summary(productID, LocalDate.now()), HttpStatus.OK);
+    	});
+    }
+	
+	
+    /**
+     * End point utilised to follow the Offers of a product
+     * 
+     * <p>
+     * the lifecycle events of the offers of the product (created, validated, 
+     * cancelled and expired) are pushed as Server-Sent Events, named after the
+     * event type, carrying the event id and the event as json data, see 
+     * {@link OfferEventBroadcaster}. Events happening while the client is not 
+     * connected are not replayed
+     * 
+     * @param productID	id of the product on which the offers are based
+     * @param request HTTP request to follow the offers
+     * @param response 200 STATUS_OK streaming the events, 400 BAD_REQUEST if the product 
+     * does not exist, 503 SERVICE_UNAVAILABLE if too many streams are open, both without body
+     * @return the stream of events on success, error otherwise
+     */
+	@RequestMapping(value = "/stream",
+            method = RequestMethod.GET,
+            produces = {"text/event-stream"})
+    public
+    @ResponseBody Object
+    streamOffersHandler(@RequestParam(value = "productID") long productID,
+    		HttpServletRequest request, HttpServletResponse response) {
+    	if (log.isDebugEnabled()) {
+    		log.debug("streamOffersHandler(): offers received to be followed productId={}", productID);
+    	}
+    	
+    	if (!productCache.exists(productID)) {
+	        if (log.isInfoEnabled()) {
+	        	log.info("streamOffersHandler(): specified productID does not exist in db productId={}", productID);
+	        }
+    		return STREAM_PRODUCT_MISSING_RESPONSE;
+    	}
+    	
+    	SseEmitter stream = offerEventBroadcaster.subscribe(productID);
+    	if (stream == null) {
+    		log.warn("streamOffersHandler(): offer stream refused, too many streams open productId={}", productID);
+    		return STREAMS_EXHAUSTED_RESPONSE;
+    	}
+    	
+        if (logSuccess()) {
+        	log.info("streamOffersHandler(): offer stream opened productId={}", productID);
+        }
+    	return stream;
     }
 	
 	
     /**
      * End point utilised to cancel an Offer
      * 
+     * <p>
+     * when an If-Match header holding the ETag of the offer is sent, the offer
+     * is only cancelled if it has not changed since it was read
+     * 
      * @param id of the wanted offer
      * @param request HTTP request to retrieve the offer
-     * @param response 204 NO_CONTENT on success, 404 NOT_FOUND if offer is not found
+     * @param response 204 NO_CONTENT on success or if already cancelled, 404 NOT_FOUND if 
+     * offer is not found, 409 CONFLICT if the offer is expired, 412 PRECONDITION_FAILED
+     * if the offer does not match the If-Match header,
      * 500 INTERNAL_SERVER_ERROR in case thrown expection
      */
     @RequestMapping(value = "/cancel/{id}",
             method = RequestMethod.PUT)
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public 
-    @ResponseBody ResponseEntity<Object> 
+    @ResponseBody Object 
     cancelOfferHandler(@PathVariable("id") long id, HttpServletRequest request, HttpServletResponse response) {
-    	log.info(String.format("cancelOfferHandler(): offer %s received to be cancelled", Long.toString(id)));
+    	if (log.isDebugEnabled()) {
+    		log.debug("cancelOfferHandler(): offer received to be cancelled offerId={}", id);
+    	}
     	
-    	try {
+    	//read on the request thread, the rest of the request may run on the async executor
+    	String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+    	Long version = ifMatch == null || ifMatch.trim().equals("*") ? null : OfferETags.versionOf(ifMatch);
+    	if (version != null && version < 0) {
+    		return PRECONDITION_FAILED_RESPONSE;
+    	}
     	
-	    	if(!this.offerService.cancelOffer(id)) {
-	    		//in case offer is not found.
-		        log.info(String.format("cancelOfferHandler(): offer %s could not be found", Long.toString(id)));
-	            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-	    	} else {
-	    		//in case offer is cancelled
-		        log.info(String.format("cancelOfferHandler(): offer %s has been cancelled", Long.toString(id)));
-	            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    	return requestExecutor.execute(() -> {
+	    	switch (this.offerService.cancelOffer(id, version)) {
+	    	case NOT_FOUND:
+		        if (log.isInfoEnabled()) {
+		        	log.info("cancelOfferHandler(): offer could not be found offerId={}", id);
+		        }
+	            return NOT_FOUND_RESPONSE;
+	    	case NOT_CANCELLABLE:
+		        if (log.isInfoEnabled()) {
+		        	log.info("cancelOfferHandler(): offer is expired and cannot be cancelled offerId={}", id);
+		        }
+	            return NOT_CANCELLABLE_RESPONSE;
+	    	case VERSION_MISMATCH:
+		        if (log.isInfoEnabled()) {
+		        	log.info("cancelOfferHandler(): offer has changed since it was read offerId={}", id);
+		        }
+	            return PRECONDITION_FAILED_RESPONSE;
+			default:
+				//in case offer is cancelled, or already was
+		        if (logSuccess()) {
+		        	log.info("cancelOfferHandler(): offer has been cancelled offerId={}", id);
+		        }
+		        return NO_CONTENT_RESPONSE;
 	    	}
+    	});
+    }
+
+    /**
+     * End point utilised to cancel Offers in bulk
+     * 
+     * <p>
+     * offers are selected either by a list of ids or by a filter on productID,
+     * status and currencyCode. Offers which cannot be cancelled are skipped
+     * 
+     * @param cancel	offers to be cancelled
+     * @param request HTTP request to cancel the offers
+     * @param response 200 STATUS_OK with the number of offers matched and cancelled, 
+     * 400 BAD_REQUEST if both or none of ids and filter are set,
+     * 500 INTERNAL_SERVER_ERROR in case thrown expection
+     * @return the outcome of the bulk cancellation on success, error otherwise
+     */
+    @RequestMapping(value = "/cancel",
+            method = RequestMethod.POST,
+            consumes = {"application/json"},
+            produces = {"application/json"})
+    public 
+    @ResponseBody Object 
+    cancelOffersHandler(@RequestBody OfferBulkCancel cancel, HttpServletRequest request, HttpServletResponse response) {
+    	if (log.isDebugEnabled()) {
+    		log.debug("cancelOffersHandler(): offers received to be cancelled ids={} productId={} status={} currencyCode={}", 
+    				cancel.hasIds() ? cancel.getIds().size() : 0, cancel.getProductID(), cancel.getStatus(), 
+    				cancel.getCurrencyCode());
+    	}
     	
-		} catch (Exception e) {
-			e.printStackTrace(new PrintWriter(errors));
-	        log.info(String.format("cancelOfferHandler(): offer %s could not be cancelled, stacktrace: %s", Long.toString(id), errors));
-			return new ResponseEntity<Object>(null, HttpStatus.INTERNAL_SERVER_ERROR);
-		}
+    	if (cancel.hasIds() == cancel.hasCriteria()) {
+    		return BULK_CANCEL_INVALID_RESPONSE;
+    	}
+    	
+    	return requestExecutor.execute(() -> {
+	    	OfferBulkCancelResult result = cancel.hasIds() 
+	    			? this.offerService.cancelOffers(cancel.getIds()) 
+	    			: this.offerService.cancelOffers(cancel.toFilter());
+    	
+	        if (logSuccess()) {
+	        	log.info("cancelOffersHandler(): offers cancelled matched={} cancelled={}", 
+	        			result.getMatched(), result.getCancelled());
+	        }
+	        return new ResponseEntity<Object>(result, HttpStatus.OK);
+    	});
+    }
+
+    /**
+     * @param successSampleRate	average number of successful requests per logged one
+     */
+    @Value("${offer.logging.success-sample-rate:1}")
+    public void setSuccessSampleRate(int successSampleRate) {
+    	this.successLogSampler = new LogSampler(successSampleRate);
+    }
+    
+    /**
+     * @return true if the success line of the current request is to be logged
+     */
+    private boolean logSuccess() {
+    	return log.isInfoEnabled() && successLogSampler.sample();
     }
 
     /**
@@ -0,0 +1,189 @@
+package api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+
+import api.model.ApiError;
+import api.model.IllegalStatusTransitionException;
+import api.util.LogRateLimiter;
+
+/**
+ * Maps the exceptions thrown by the end points to error responses
+ * 
+ * <p>
+ * every failure is counted by end point and exception type. Stack traces
+ * are logged at a bounded rate, failures beyond it are logged on a single
+ * line, hence neither memory nor log volume grow with the number of failures
+ * 
+ * @author Samith Silva
+ *
+ */
+@ControllerAdvice
+public class OfferExceptionHandler extends ResponseEntityExceptionHandler {
+	
+	//end point name used when the failing handler is not known
+	private static final String UNKNOWN_ENDPOINT = "unknown";
+	
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+    
+    //failures counted by end point and exception type, bounded by the number of pairs
+    private final ConcurrentMap<String, LongAdder> errorCounts = new ConcurrentHashMap<String, LongAdder>();
+    
+    private final LogRateLimiter stackTraceLimiter;
+    
+    /**
+     * @param stackTracesPerMinute	maximum number of stack traces logged per minute
+     */
+    public OfferExceptionHandler(@Value("${offer.errors.stack-traces-per-minute:10}") int stackTracesPerMinute) {
+    	this.stackTraceLimiter = new LogRateLimiter(stackTracesPerMinute, 1, TimeUnit.MINUTES);
+    }
+    
+    /**
+     * handles any exception not mapped by Spring MVC
+     * 
+     * @param e	exception thrown by the end point
+     * @param request	failed request
+     * @return 500 INTERNAL_SERVER_ERROR with a generic error
+     */
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<Object> handleUnexpected(Exception e, WebRequest request) {
+    	String endpoint = endpointOf(request);
+    	record(endpoint, e, HttpStatus.INTERNAL_SERVER_ERROR);
+		return new ResponseEntity<Object>(
+				new ApiError(String.format("exception thrown in internal %s(), please contact Samith Silva", endpoint)), 
+				HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+    
+    /**
+     * handles an offer asked to move to a status it cannot reach (e.g. cancelling an expired offer)
+     * 
+     * @param e	exception thrown by the end point
+     * @param request	failed request
+     * @return 409 CONFLICT with the rejected transition
+     */
+    @ExceptionHandler(IllegalStatusTransitionException.class)
+    public ResponseEntity<Object> handleIllegalTransition(IllegalStatusTransitionException e, WebRequest request) {
+    	record(endpointOf(request), e, HttpStatus.CONFLICT);
+		return new ResponseEntity<Object>(new ApiError(e.getMessage()), HttpStatus.CONFLICT);
+    }
+    
+    /**
+     * handles an offer written concurrently by another request, detected through its version
+     * 
+     * @param e	exception thrown by the end point
+     * @param request	failed request
+     * @return 409 CONFLICT, the request can be retried once the offer has been read again
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Object> handleConcurrentWrite(OptimisticLockingFailureException e, WebRequest request) {
+    	record(endpointOf(request), e, HttpStatus.CONFLICT);
+		return new ResponseEntity<Object>(new ApiError("offer was modified concurrently, read it again and retry"), 
+				HttpStatus.CONFLICT);
+    }
+    
+    /**
+     * handles a request rejected because the async executor of the offer end points is saturated
+     * 
+     * @param e	exception thrown by the end point
+     * @param request	rejected request
+     * @return 503 SERVICE_UNAVAILABLE, the request can be retried later
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Object> handleRejected(TaskRejectedException e, WebRequest request) {
+    	record(endpointOf(request), e, HttpStatus.SERVICE_UNAVAILABLE);
+    	HttpHeaders headers = new HttpHeaders();
+    	headers.set(HttpHeaders.RETRY_AFTER, "1");
+		return new ResponseEntity<Object>(new ApiError("too many requests in progress, retry later"), headers, 
+				HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    
+    /**
+     * counts and logs the standard Spring MVC exceptions (e.g. unreadable body) 
+     * before they are mapped to their usual status
+     */
+    @Override
+    protected ResponseEntity<Object> handleExceptionInternal(Exception e, Object body, HttpHeaders headers,
+    		HttpStatus status, WebRequest request) {
+    	record(endpointOf(request), e, status);
+    	if (body == null) {
+    		body = new ApiError(e.getMessage());
+    	}
+    	return super.handleExceptionInternal(e, body, headers, status, request);
+    }
+    
+    /**
+     * @return number of failures by end point and exception type, 
+     * keyed as endpoint:ExceptionType
+     */
+    public Map<String, Long> getErrorCounts() {
+    	Map<String, Long> counts = new TreeMap<String, Long>();
+    	for (Map.Entry<String, LongAdder> count : errorCounts.entrySet()) {
+    		counts.put(count.getKey(), count.getValue().sum());
+    	}
+    	return Collections.unmodifiableMap(counts);
+    }
+    
+    /**
+     * @param request	failed request
+     * @return name of the end point which handled the request
+     */
+    private String endpointOf(WebRequest request) {
+    	Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    	if (handler instanceof HandlerMethod) {
+    		return ((HandlerMethod) handler).getMethod().getName();
+    	}
+    	Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    	return pattern == null ? UNKNOWN_ENDPOINT : pattern.toString();
+    }
+    
+    /**
+     * counts and logs a failure
+     * 
+     * @param endpoint	name of the failing end point
+     * @param e	exception thrown
+     * @param status	status sent back to the client
+     */
+    private void record(String endpoint, Exception e, HttpStatus status) {
+    	String type = e.getClass().getSimpleName();
+    	errorCounts.computeIfAbsent(endpoint + ":" + type, key -> new LongAdder()).increment();
+    	
+    	//client errors and requests shed under load are expected, there is nothing to learn from their stack trace
+    	if (status.is4xxClientError() || status == HttpStatus.SERVICE_UNAVAILABLE) {
+    		if (log.isInfoEnabled()) {
+    			log.info("{}(): request rejected status={} error={}", endpoint, status.value(), e.getMessage());
+    		}
+    		return;
+    	}
+    	
+    	if (stackTraceLimiter.tryAcquire()) {
+    		long suppressed = stackTraceLimiter.drainDenied();
+    		if (suppressed > 0) {
+    			log.error("stack traces suppressed since the last one logged count={}", suppressed);
+    		}
+    		log.error("{}(): request failed exception={}", endpoint, type, e);
+    	} else {
+    		log.error("{}(): request failed exception={} error={}", endpoint, type, e.getMessage());
+    	}
+    }
+}
@@ -0,0 +1,131 @@
+package api;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the work of the offer end points according to the configured execution mode
+ * 
+ * <p>
+ * in blocking mode the work runs on the servlet container thread which 
+ * received the request, as it always did. In async mode it is handed over
+ * to a bounded executor and a CompletableFuture is returned, so that the 
+ * container thread is released while the db is queried. The number of 
+ * requests hitting the db at once is then bounded by the executor threads 
+ * rather than by the container threads, requests beyond its queue are 
+ * rejected and answered with 503 by the {@link OfferExceptionHandler}
+ * 
+ * @author Samith Silva
+ *
+ */
+@Component
+public class OfferRequestExecutor {
+	
+	public static final String BLOCKING = "blocking";
+	
+	public static final String ASYNC = "async";
+	
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+	
+	//null in blocking mode
+	private final ThreadPoolTaskExecutor executor;
+	
+	/**
+	 * @param mode	either blocking or async
+	 * @param threads	number of threads running the requests in async mode
+	 * @param queueCapacity	number of requests waiting for a thread in async mode before new ones are rejected
+	 */
+	public OfferRequestExecutor(@Value("${offer.api.execution-mode:blocking}") String mode,
+			@Value("${offer.api.async.threads:20}") int threads,
+			@Value("${offer.api.async.queue-capacity:1000}") int queueCapacity) {
+		if (BLOCKING.equalsIgnoreCase(mode)) {
+			this.executor = null;
+		} else if (ASYNC.equalsIgnoreCase(mode)) {
+			this.executor = new ThreadPoolTaskExecutor();
+			executor.setCorePoolSize(threads);
+			executor.setMaxPoolSize(threads);
+			executor.setQueueCapacity(queueCapacity);
+			executor.setThreadNamePrefix("offer-api-");
+			executor.setTaskDecorator(OfferRequestExecutor::withLoggingContext);
+			executor.initialize();
+		} else {
+			throw new IllegalArgumentException(String.format(
+					"offer.api.execution-mode must be either %s or %s, was %s", BLOCKING, ASYNC, mode));
+		}
+		log.info("OfferRequestExecutor(): offer end points run in {} mode", executor == null ? BLOCKING : ASYNC);
+	}
+	
+	/**
+	 * runs the work of an end point
+	 * 
+	 * @param work	of the end point, building its response
+	 * @return the response in blocking mode, a CompletableFuture of the response in async mode,
+	 * completed exceptionally with the exception thrown by the work if any
+	 * @throws org.springframework.core.task.TaskRejectedException in async mode if the executor queue is full
+	 */
+	public Object execute(Supplier<ResponseEntity<Object>> work) {
+		if (executor == null) {
+			return work.get();
+		}
+		
+		//completed by hand rather than through supplyAsync so that the exception reaches
+		//the exception handler as thrown, not wrapped in a CompletionException
+		CompletableFuture<ResponseEntity<Object>> response = new CompletableFuture<ResponseEntity<Object>>();
+		executor.execute(() -> {
+			try {
+				response.complete(work.get());
+			} catch (Throwable e) {
+				response.completeExceptionally(e);
+			}
+		});
+		return response;
+	}
+	
+	/**
+	 * @return true if the end points run in async mode
+	 */
+	public boolean isAsync() {
+		return executor != null;
+	}
+	
+	/**
+	 * stops the executor once the running requests are done
+	 */
+	@PreDestroy
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * carries the logging context of the request (e.g. its correlation id) over to the executor thread
+	 * 
+	 * @param task	to be run on the executor
+	 * @return the task run within the logging context of the thread which submitted it
+	 */
+	private static Runnable withLoggingContext(Runnable task) {
+		Map<String, String> context = MDC.getCopyOfContextMap();
+		return () -> {
+			if (context != null) {
+				MDC.setContextMap(context);
+			}
+			try {
+				task.run();
+			} finally {
+				MDC.clear();
+			}
+		};
+	}
+}
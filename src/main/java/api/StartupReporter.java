@@ -0,0 +1,55 @@
+package api;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Reports how long the application took to start
+ *
+ * <p>
+ * the startup time runs from the start of the JVM until the application 
+ * is ready to serve requests, db migrations included. It is logged once 
+ * and exposed by the offer.startup.duration gauge, which reports -1 until
+ * the application is ready
+ *
+ * @author Samith Silva
+ *
+ */
+@Component
+public class StartupReporter implements ApplicationListener<ApplicationReadyEvent>, MeterBinder {
+
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+	private volatile long startupMillis = -1;
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+		log.info("onApplicationEvent(): application ready startupMs={} profiles={}", startupMillis, 
+				String.join(",", event.getApplicationContext().getEnvironment().getActiveProfiles()));
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		TimeGauge.builder("offer.startup.duration", this, TimeUnit.MILLISECONDS, StartupReporter::getStartupMillis)
+				.description("time from the start of the JVM until the application was ready")
+				.register(registry);
+	}
+
+	/**
+	 * @return milliseconds from the start of the JVM until the application was ready, -1 until it is
+	 */
+	public long getStartupMillis() {
+		return startupMillis;
+	}
+}
@@ -0,0 +1,31 @@
+package api.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Error sent back to the client when a request fails, 
+ * instances are immutable and may be shared across requests
+ * 
+ * @author Samith Silva
+ *
+ */
+public class ApiError {
+	
+	//key of every error body sent back by the end points
+	@JsonProperty("error:")
+	private final String error;
+	
+	/**
+	 * @param error	description of the error
+	 */
+	public ApiError(String error) {
+		this.error = error;
+	}
+
+	/**
+	 * @return the error
+	 */
+	public String getError() {
+		return error;
+	}
+}
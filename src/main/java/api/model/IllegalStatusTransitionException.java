@@ -0,0 +1,40 @@
+package api.model;
+
+/**
+ * Thrown when an offer is asked to move to a status it cannot reach from its current one
+ *
+ * @author Samith Silva
+ *
+ */
+public class IllegalStatusTransitionException extends IllegalStateException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final OfferStatus from;
+
+	private final OfferStatus to;
+
+	/**
+	 * @param from	current status of the offer
+	 * @param to	status the offer was asked to move to
+	 */
+	public IllegalStatusTransitionException(OfferStatus from, OfferStatus to) {
+		super(String.format("offer cannot move from %s to %s", from, to));
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * @return current status of the offer
+	 */
+	public OfferStatus getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return status the offer was asked to move to
+	 */
+	public OfferStatus getTo() {
+		return to;
+	}
+}
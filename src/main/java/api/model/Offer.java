@@ -1,29 +1,51 @@
 package api.model;
 
 import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+import org.hibernate.Hibernate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import api.util.Consts;
 
 @Entity
-@Table(name = "Offer")
+@Table(name = "Offer", indexes = {
+		@Index(name = "idx_offer_expires_on", columnList = "expiresOn"),
+		@Index(name = "idx_offer_product_status_id", columnList = "productID, status, id"),
+		@Index(name = "idx_offer_status_id", columnList = "status, id")
+})
 @XmlRootElement
 @XmlAccessorType(XmlAccessType.FIELD)
 public class Offer {
-	//constants
-	//when an offer has just been created, it will have an undefined state
-	public static final String UNDEFINED__STATUS_OFFER_STRING = "undefined";
-	public static final String VALID__STATUS_OFFER_STRING = "valid";
-	public static final String EXPIRED__STATUS_OFFER_STRING = "expired";
-	public static final String CANCELLED__STATUS_OFFER_STRING = "cancelled";
-	
+    //ids are allocated by a pooled optimizer, a single sequence call reserves 
+    //allocationSize ids so batched inserts do not cost a round trip per offer,
+    //the sequence starts past the ids of the offers inserted by the seed migration
     @Id
-    @GeneratedValue()
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "offer_seq")
+    @SequenceGenerator(name = "offer_seq", sequenceName = "offer_seq", initialValue = 1000, allocationSize = 50)
 	private long id;
     
     @Column(nullable = false)
@@ -35,8 +57,10 @@ public class Offer {
     @Column(nullable = false)
 	private String currencyCode;
     
+    //stored as a native date, exposed on the wire as a Consts.TIMEFORMAT string
     @Column(nullable = false)
-	private String createdOn;
+    @XmlTransient
+	private LocalDate createdOn;
 
     //in case the validity of the offer is undefined, this value might be empty
     @Column()
@@ -45,8 +69,30 @@ public class Offer {
     @Column(nullable = false)
 	private long productID;
     
+    //read-only view of productID, written through productID only. Loaded lazily, 
+    //queries wanting the product fetch it along with the offer
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "productID", insertable = false, updatable = false)
+    @XmlTransient
+	private Product product;
+    
+    //stored as a single character code, see OfferStatusConverter
+    @Column(nullable = false, length = 1)
+    @Convert(converter = OfferStatusConverter.class)
+	private OfferStatus status = OfferStatus.UNDEFINED;
+    
+    //last day on which the offer is still valid, derived from createdOn and daysValidFor
+    //so that expired offers can be found through an index range scan
+    @Column()
+    @XmlTransient
+	private LocalDate expiresOn;
+    
+    //incremented on every write, including the bulk updates of the repository, 
+    //so that concurrent writes fail instead of overwriting each other
+    @Version
     @Column(nullable = false)
-	private String status;
+    @XmlTransient
+	private long version;
 
 	
 	/**
@@ -71,14 +117,15 @@ public class Offer {
 	 * @param  productID  id of the product on which the offer is based
 	 */
 	public Offer(String description, BigDecimal price, String currencyCode, String createdOn, int daysValidFor,
-			String status, long productID) {
+			OfferStatus status, long productID) {
 		this.description = description;
 		this.price = price;
 		this.currencyCode = currencyCode;
-		this.createdOn = createdOn;
+		this.createdOn = parseDate(createdOn);
 		this.daysValidFor = daysValidFor;
 		this.status = status;
 		this.productID = productID;
+		computeExpiresOn();
 	}
 
 	/**
@@ -132,16 +179,32 @@ public class Offer {
 		this.currencyCode = currencyCode;
 	}
 	/**
-	 * @return the createdOn
+	 * @return the createdOn formatted as Consts.TIMEFORMAT, null if not set
 	 */
 	public String getCreatedOn() {
-		return createdOn;
+		return createdOn == null ? null : createdOn.format(Consts.DATEFORMATTER);
 	}
 	/**
-	 * @param createdOn the createdOn to set
+	 * @param createdOn the createdOn to set, formatted as Consts.TIMEFORMAT,
+	 * a value which cannot be parsed leaves the offer without creation date
 	 */
 	public void setCreatedOn(String createdOn) {
-		this.createdOn = createdOn;
+		setCreatedDate(parseDate(createdOn));
+	}
+	/**
+	 * @return the createdOn as a date
+	 */
+	@JsonIgnore
+	public LocalDate getCreatedDate() {
+		return createdOn;
+	}
+	/**
+	 * @param createdDate the createdOn date to set
+	 */
+	@JsonIgnore
+	public void setCreatedDate(LocalDate createdDate) {
+		this.createdOn = createdDate;
+		computeExpiresOn();
 	}
 	/**
 	 * @return the daysValidFor
@@ -154,17 +217,18 @@ public class Offer {
 	 */
 	public void setDaysValidFor(int daysValidFor) {
 		this.daysValidFor = daysValidFor;
+		computeExpiresOn();
 	}
 	/**
 	 * @return the status
 	 */
-	public String getStatus() {
+	public OfferStatus getStatus() {
 		return status;
 	}
 	/**
 	 * @param status the status to set
 	 */
-	public void setStatus(String status) {
+	public void setStatus(OfferStatus status) {
 		this.status = status;
 	}
 	/**
@@ -180,4 +244,95 @@ public class Offer {
 	public void setProductID(long productID) {
 		this.productID = productID;
 	}
+
+	/**
+	 * @return the product on which the offer is based, a lazy proxy unless 
+	 * fetched along with the offer, null for offers which were never stored
+	 */
+	@JsonIgnore
+	public Product getProduct() {
+		return product;
+	}
+	
+	/**
+	 * the product is only serialised once it has been loaded, so that 
+	 * serialising an offer never issues a query of its own
+	 * 
+	 * @return the product on which the offer is based if loaded, null otherwise
+	 */
+	@JsonProperty("product")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public Product getLoadedProduct() {
+		return product != null && Hibernate.isInitialized(product) ? product : null;
+	}
+
+	/**
+	 * @return the last day on which the offer is valid, null if it cannot be derived
+	 */
+	@JsonIgnore
+	public LocalDate getExpiresOn() {
+		return expiresOn;
+	}
+	
+	/**
+	 * @return the version of the stored offer, incremented on every write
+	 */
+	@JsonIgnore
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * copies the offer with a different price
+	 *
+	 * @param price	of the copy
+	 * @param currencyCode	of the copy's price
+	 * @return a copy of the offer, including id and version, priced as passed
+	 */
+	public Offer withPrice(BigDecimal price, String currencyCode) {
+		Offer copy = new Offer();
+		copy.id = id;
+		copy.description = description;
+		copy.price = price;
+		copy.currencyCode = currencyCode;
+		copy.createdOn = createdOn;
+		copy.daysValidFor = daysValidFor;
+		copy.productID = productID;
+		copy.product = product;
+		copy.status = status;
+		copy.expiresOn = expiresOn;
+		copy.version = version;
+		return copy;
+	}
+
+	/**
+	 * derives the expiresOn date from createdOn and daysValidFor
+	 * 
+	 * <p>
+	 * invoked whenever either of them changes and by the persistence provider 
+	 * before every insert and update so that the stored expiry date never 
+	 * drifts from the offer's validity time frame
+	 */
+	@PrePersist
+	@PreUpdate
+	void computeExpiresOn() {
+		expiresOn = createdOn == null ? null : createdOn.plusDays(daysValidFor);
+	}
+	
+	/**
+	 * parses a date formatted as Consts.TIMEFORMAT
+	 * 
+	 * @param date to be parsed
+	 * @return the parsed date, null if the passed date is null or cannot be parsed
+	 */
+	private static LocalDate parseDate(String date) {
+		if (date == null) {
+			return null;
+		}
+		try {
+			return LocalDate.parse(date, Consts.DATEFORMATTER);
+		} catch (DateTimeException e) {
+			return null;
+		}
+	}
 }
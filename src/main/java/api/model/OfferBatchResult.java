@@ -0,0 +1,88 @@
+package api.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of the creation of a single offer within a batch
+ * 
+ * <p>
+ * the status mirrors the HTTP status the offer would have been given 
+ * if created on its own: 201 with the offer id on success, 400 or 500
+ * with an error otherwise
+ * 
+ * @author Samith Silva
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OfferBatchResult {
+	
+	private final int index;
+	
+	private final int status;
+	
+	private final String id;
+	
+	private final String error;
+	
+	private OfferBatchResult(int index, int status, String id, String error) {
+		this.index = index;
+		this.status = status;
+		this.id = id;
+		this.error = error;
+	}
+	
+	/**
+	 * @param index	position of the offer in the batch
+	 * @param id	id of the newly created offer
+	 * @return result of an offer created successfully
+	 */
+	public static OfferBatchResult created(int index, long id) {
+		return new OfferBatchResult(index, 201, Long.toString(id), null);
+	}
+	
+	/**
+	 * @param index	position of the offer in the batch
+	 * @param error	reason why the offer is not valid
+	 * @return result of an offer rejected as not valid
+	 */
+	public static OfferBatchResult badRequest(int index, String error) {
+		return new OfferBatchResult(index, 400, null, error);
+	}
+	
+	/**
+	 * @param index	position of the offer in the batch
+	 * @param error	reason why the offer could not be saved
+	 * @return result of an offer which failed to be saved into the db
+	 */
+	public static OfferBatchResult failed(int index, String error) {
+		return new OfferBatchResult(index, 500, null, error);
+	}
+
+	/**
+	 * @return the position of the offer in the batch
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the status
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the id of the created offer, null on failure
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the error, null on success
+	 */
+	public String getError() {
+		return error;
+	}
+}
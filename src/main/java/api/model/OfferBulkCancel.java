@@ -0,0 +1,101 @@
+package api.model;
+
+import java.util.List;
+
+/**
+ * Offers to be cancelled in bulk
+ * 
+ * <p>
+ * offers are selected either by their ids or by the criteria of a filter,
+ * criteria left null are not applied. Ids and criteria cannot be combined
+ * 
+ * @author Samith Silva
+ *
+ */
+public class OfferBulkCancel {
+	
+	private List<Long> ids;
+	
+	private Long productID;
+	
+	private OfferStatus status;
+	
+	private String currencyCode;
+
+	/**
+	 * @return the ids of the offers to be cancelled
+	 */
+	public List<Long> getIds() {
+		return ids;
+	}
+
+	/**
+	 * @param ids the ids to set
+	 */
+	public void setIds(List<Long> ids) {
+		this.ids = ids;
+	}
+
+	/**
+	 * @return the productID
+	 */
+	public Long getProductID() {
+		return productID;
+	}
+
+	/**
+	 * @param productID the productID to set
+	 */
+	public void setProductID(Long productID) {
+		this.productID = productID;
+	}
+
+	/**
+	 * @return the status
+	 */
+	public OfferStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @param status the status to set
+	 */
+	public void setStatus(OfferStatus status) {
+		this.status = status;
+	}
+
+	/**
+	 * @return the currencyCode
+	 */
+	public String getCurrencyCode() {
+		return currencyCode;
+	}
+
+	/**
+	 * @param currencyCode the currencyCode to set
+	 */
+	public void setCurrencyCode(String currencyCode) {
+		this.currencyCode = currencyCode;
+	}
+	
+	/**
+	 * @return true if offers are selected by their ids
+	 */
+	public boolean hasIds() {
+		return ids != null && !ids.isEmpty();
+	}
+	
+	/**
+	 * @return true if at least one criterion of the filter is set
+	 */
+	public boolean hasCriteria() {
+		return productID != null || status != null || currencyCode != null;
+	}
+	
+	/**
+	 * @return the filter made of the criteria
+	 */
+	public OfferFilter toFilter() {
+		return new OfferFilter(productID, status, currencyCode, null, null);
+	}
+}
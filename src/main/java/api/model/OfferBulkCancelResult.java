@@ -0,0 +1,53 @@
+package api.model;
+
+/**
+ * Outcome of a bulk cancellation
+ * 
+ * <p>
+ * matched counts the offers selected to be cancelled, cancelled counts those
+ * actually cancelled. Offers already cancelled, expired or missing are 
+ * matched but not cancelled
+ * 
+ * @author Samith Silva
+ *
+ */
+public class OfferBulkCancelResult {
+	
+	private final int matched;
+	
+	private final int cancelled;
+	
+	private final int chunks;
+	
+	/**
+	 * @param matched	number of offers selected to be cancelled
+	 * @param cancelled	number of offers cancelled
+	 * @param chunks	number of update statements run
+	 */
+	public OfferBulkCancelResult(int matched, int cancelled, int chunks) {
+		this.matched = matched;
+		this.cancelled = cancelled;
+		this.chunks = chunks;
+	}
+
+	/**
+	 * @return the number of offers selected to be cancelled
+	 */
+	public int getMatched() {
+		return matched;
+	}
+
+	/**
+	 * @return the number of offers cancelled
+	 */
+	public int getCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return the number of update statements run
+	 */
+	public int getChunks() {
+		return chunks;
+	}
+}
@@ -0,0 +1,20 @@
+package api.model;
+
+/**
+ * Outcome of the cancellation of an offer
+ * 
+ * @author Samith Silva
+ *
+ */
+public enum OfferCancellation {
+	//the offer has been moved to cancelled
+	CANCELLED,
+	//the offer was already cancelled, nothing has been written
+	ALREADY_CANCELLED,
+	//no offer with the requested id exists in db
+	NOT_FOUND,
+	//the offer is expired and cannot be cancelled
+	NOT_CANCELLABLE,
+	//the offer has changed since the version the client asked to cancel
+	VERSION_MISMATCH
+}
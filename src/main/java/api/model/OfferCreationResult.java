@@ -0,0 +1,86 @@
+package api.model;
+
+/**
+ * Outcome of the creation of an offer
+ * 
+ * <p>
+ * failed outcomes carry no data, hence they are shared instances
+ * and creating an offer allocates a result only on success
+ * 
+ * @author Samith Silva
+ *
+ */
+public final class OfferCreationResult {
+	
+	/**
+	 * possible outcomes of the creation of an offer
+	 */
+	public enum Outcome {
+		//the offer has been saved into the db
+		CREATED,
+		//the currencyCode of the offer is not an ISO 4217 currency code
+		CURRENCY_INVALID,
+		//the productID of the offer does not exist in db
+		PRODUCT_MISSING,
+		//the offer failed to be saved into the db
+		PERSISTENCE_FAILED
+	}
+	
+	private static final OfferCreationResult CURRENCY_INVALID = new OfferCreationResult(Outcome.CURRENCY_INVALID, 0);
+	
+	private static final OfferCreationResult PRODUCT_MISSING = new OfferCreationResult(Outcome.PRODUCT_MISSING, 0);
+	
+	private static final OfferCreationResult PERSISTENCE_FAILED = new OfferCreationResult(Outcome.PERSISTENCE_FAILED, 0);
+	
+	private final Outcome outcome;
+	
+	private final long offerID;
+	
+	private OfferCreationResult(Outcome outcome, long offerID) {
+		this.outcome = outcome;
+		this.offerID = offerID;
+	}
+	
+	/**
+	 * @param offerID	id of the newly created offer
+	 * @return result of an offer saved into the db
+	 */
+	public static OfferCreationResult created(long offerID) {
+		return new OfferCreationResult(Outcome.CREATED, offerID);
+	}
+	
+	/**
+	 * @return result of an offer of which currencyCode is not an ISO 4217 currency code
+	 */
+	public static OfferCreationResult currencyInvalid() {
+		return CURRENCY_INVALID;
+	}
+	
+	/**
+	 * @return result of an offer of which productID does not exist in db
+	 */
+	public static OfferCreationResult productMissing() {
+		return PRODUCT_MISSING;
+	}
+	
+	/**
+	 * @return result of an offer which failed to be saved into the db
+	 */
+	public static OfferCreationResult persistenceFailed() {
+		return PERSISTENCE_FAILED;
+	}
+
+	/**
+	 * @return the outcome
+	 */
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * @return the id of the newly created offer, 0 unless created
+	 */
+	public long getOfferID() {
+		return offerID;
+	}
+}
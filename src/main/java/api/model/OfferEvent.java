@@ -0,0 +1,119 @@
+package api.model;
+
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Lifecycle event of an offer, held in the outbox until delivered
+ *
+ * <p>
+ * events are written by the same transaction as the change of the offer 
+ * they describe, through the insert statements of the OfferEventRepository,
+ * hence an event exists if and only if its change has been committed. 
+ * Delivery is at least once, consumers can tell repeated events by their id
+ *
+ * @author Samith Silva
+ *
+ */
+@Entity
+@Table(name = "offer_event")
+public class OfferEvent {
+
+    //assigned by the db as events are inserted by insert ... select statements
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+	private long id;
+
+    @Column(name = "offer_id", nullable = false)
+	private long offerID;
+
+    @Column(nullable = false)
+	private long productID;
+
+    @Column(nullable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+	private OfferEventType type;
+
+    //status of the offer once the event happened
+    @Column(nullable = false, length = 1)
+    @Convert(converter = OfferStatusConverter.class)
+	private OfferStatus status;
+
+    @Column(name = "created_at", nullable = false)
+	private Instant createdAt;
+
+	/**
+	 * Default constructor
+	 */
+	public OfferEvent() {
+	}
+
+	/**
+	 * @param id	unique identifier, in the order the events were recorded
+	 * @param offerID	id of the offer the event happened to
+	 * @param productID	id of the product on which the offer is based
+	 * @param type	what happened to the offer
+	 * @param status	status of the offer once the event happened
+	 * @param createdAt	time at which the event was recorded
+	 */
+	public OfferEvent(long id, long offerID, long productID, OfferEventType type, OfferStatus status, 
+			Instant createdAt) {
+		this.id = id;
+		this.offerID = offerID;
+		this.productID = productID;
+		this.type = type;
+		this.status = status;
+		this.createdAt = createdAt;
+	}
+
+	/**
+	 * @return the id
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * @return the id of the offer
+	 */
+	public long getOfferID() {
+		return offerID;
+	}
+
+	/**
+	 * @return the id of the product
+	 */
+	public long getProductID() {
+		return productID;
+	}
+
+	/**
+	 * @return the type
+	 */
+	public OfferEventType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the status of the offer once the event happened
+	 */
+	public OfferStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the time at which the event was recorded
+	 */
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+}
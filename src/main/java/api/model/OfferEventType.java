@@ -0,0 +1,39 @@
+package api.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Lifecycle events of an offer
+ *
+ * <p>
+ * each event is written as its lower-case label on the wire and by name in the db
+ *
+ * @author Samith Silva
+ *
+ */
+public enum OfferEventType {
+	CREATED("created"),
+	//the offer has been created within its validity time frame
+	VALIDATED("validated"),
+	CANCELLED("cancelled"),
+	EXPIRED("expired");
+
+	private final String label;
+
+	OfferEventType(String label) {
+		this.label = label;
+	}
+
+	/**
+	 * @return the label used on the wire, e.g. created
+	 */
+	@JsonValue
+	public String getLabel() {
+		return label;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
@@ -0,0 +1,115 @@
+package api.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Criteria used to filter offers when listing them, 
+ * criteria left null are not applied
+ * 
+ * @author Samith Silva
+ *
+ */
+public class OfferFilter {
+	
+	private Long productID;
+	
+	private OfferStatus status;
+	
+	private String currencyCode;
+	
+	private BigDecimal minPrice;
+	
+	private BigDecimal maxPrice;
+
+	/**
+	 * Default constructor, no criteria applied
+	 */
+	public OfferFilter() {
+	}
+	
+	/**
+	 * @param productID	id of the product on which the offers are based
+	 * @param status	status of the offers
+	 * @param currencyCode	currency code of the offers' price
+	 * @param minPrice	minimum price of the offers, inclusive
+	 * @param maxPrice	maximum price of the offers, inclusive
+	 */
+	public OfferFilter(Long productID, OfferStatus status, String currencyCode, BigDecimal minPrice,
+			BigDecimal maxPrice) {
+		this.productID = productID;
+		this.status = status;
+		this.currencyCode = currencyCode;
+		this.minPrice = minPrice;
+		this.maxPrice = maxPrice;
+	}
+
+	/**
+	 * @return the productID
+	 */
+	public Long getProductID() {
+		return productID;
+	}
+
+	/**
+	 * @param productID the productID to set
+	 */
+	public void setProductID(Long productID) {
+		this.productID = productID;
+	}
+
+	/**
+	 * @return the status
+	 */
+	public OfferStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @param status the status to set
+	 */
+	public void setStatus(OfferStatus status) {
+		this.status = status;
+	}
+
+	/**
+	 * @return the currencyCode
+	 */
+	public String getCurrencyCode() {
+		return currencyCode;
+	}
+
+	/**
+	 * @param currencyCode the currencyCode to set
+	 */
+	public void setCurrencyCode(String currencyCode) {
+		this.currencyCode = currencyCode;
+	}
+
+	/**
+	 * @return the minPrice
+	 */
+	public BigDecimal getMinPrice() {
+		return minPrice;
+	}
+
+	/**
+	 * @param minPrice the minPrice to set
+	 */
+	public void setMinPrice(BigDecimal minPrice) {
+		this.minPrice = minPrice;
+	}
+
+	/**
+	 * @return the maxPrice
+	 */
+	public BigDecimal getMaxPrice() {
+		return maxPrice;
+	}
+
+	/**
+	 * @param maxPrice the maxPrice to set
+	 */
+	public void setMaxPrice(BigDecimal maxPrice) {
+		this.maxPrice = maxPrice;
+	}
+}
@@ -0,0 +1,43 @@
+package api.model;
+
+import java.util.List;
+
+/**
+ * Page of offers returned when listing offers
+ * 
+ * <p>
+ * pages are keyed on the offer id, the nextCursor is the id to be passed
+ * to retrieve the following page and is null once the last page is reached
+ * 
+ * @author Samith Silva
+ *
+ */
+public class OfferPage {
+	
+	private final List<Offer> offers;
+	
+	private final Long nextCursor;
+
+	/**
+	 * @param offers	offers in the page, in ascending id order
+	 * @param nextCursor	id after which the next page starts, null if there is no next page
+	 */
+	public OfferPage(List<Offer> offers, Long nextCursor) {
+		this.offers = offers;
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * @return the offers
+	 */
+	public List<Offer> getOffers() {
+		return offers;
+	}
+
+	/**
+	 * @return the nextCursor
+	 */
+	public Long getNextCursor() {
+		return nextCursor;
+	}
+}
@@ -0,0 +1,144 @@
+package api.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Statuses an offer goes through
+ *
+ * <p>
+ * an offer starts undefined, becomes valid once validated and ends either
+ * expired or cancelled. The allowed transitions are held in a table, any
+ * other transition is rejected. Each status is written as its lower-case
+ * label on the wire and as a single character code in the db
+ *
+ * @author Samith Silva
+ *
+ */
+public enum OfferStatus {
+	//when an offer has just been created, it will have an undefined state
+	UNDEFINED("undefined", 'U'),
+	VALID("valid", 'V'),
+	EXPIRED("expired", 'E'),
+	CANCELLED("cancelled", 'C');
+
+	static {
+		UNDEFINED.next = Collections.unmodifiableSet(EnumSet.of(VALID, EXPIRED, CANCELLED));
+		VALID.next = Collections.unmodifiableSet(EnumSet.of(EXPIRED, CANCELLED));
+		EXPIRED.next = Collections.emptySet();
+		CANCELLED.next = Collections.emptySet();
+	}
+
+	private final String label;
+
+	private final char code;
+
+	//statuses this status can move to
+	private Set<OfferStatus> next;
+
+	OfferStatus(String label, char code) {
+		this.label = label;
+		this.code = code;
+	}
+
+	/**
+	 * @return the label used on the wire, e.g. valid
+	 */
+	@JsonValue
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return the code stored in the db
+	 */
+	public char getCode() {
+		return code;
+	}
+
+	/**
+	 * @return true if the offer can no longer change status
+	 */
+	public boolean isTerminal() {
+		return next.isEmpty();
+	}
+
+	/**
+	 * @param status	to be moved to
+	 * @return true if this status can move to the passed one
+	 */
+	public boolean canMoveTo(OfferStatus status) {
+		return next.contains(status);
+	}
+
+	/**
+	 * checks the transition from this status to the passed one
+	 *
+	 * @param status	to be moved to
+	 * @return the passed status
+	 * @throws IllegalStatusTransitionException if the transition is not allowed
+	 */
+	public OfferStatus moveTo(OfferStatus status) {
+		if (!canMoveTo(status)) {
+			throw new IllegalStatusTransitionException(this, status);
+		}
+		return status;
+	}
+
+	/**
+	 * @param target	status to be moved to
+	 * @return the statuses which can move to the passed one
+	 */
+	public static Set<OfferStatus> sourcesOf(OfferStatus target) {
+		Set<OfferStatus> sources = EnumSet.noneOf(OfferStatus.class);
+		for (OfferStatus status : values()) {
+			if (status.canMoveTo(target)) {
+				sources.add(status);
+			}
+		}
+		return Collections.unmodifiableSet(sources);
+	}
+
+	/**
+	 * @param label	used on the wire, e.g. valid
+	 * @return the status with the passed label, null if there is none
+	 */
+	@JsonCreator
+	public static OfferStatus fromLabel(String label) {
+		for (OfferStatus status : values()) {
+			if (status.label.equals(label)) {
+				return status;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param code	stored in the db
+	 * @return the status with the passed code
+	 * @throws IllegalArgumentException if no status has the passed code
+	 */
+	public static OfferStatus fromCode(char code) {
+		switch (code) {
+		case 'U':
+			return UNDEFINED;
+		case 'V':
+			return VALID;
+		case 'E':
+			return EXPIRED;
+		case 'C':
+			return CANCELLED;
+		default:
+			throw new IllegalArgumentException(String.format("unknown offer status code %s", code));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
@@ -0,0 +1,33 @@
+package api.model;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores an {@link OfferStatus} as its single character code
+ *
+ * @author Samith Silva
+ *
+ */
+@Converter
+public class OfferStatusConverter implements AttributeConverter<OfferStatus, String> {
+
+	//codes shared by every conversion instead of being allocated per row
+	private static final String[] CODES = new String[OfferStatus.values().length];
+
+	static {
+		for (OfferStatus status : OfferStatus.values()) {
+			CODES[status.ordinal()] = String.valueOf(status.getCode());
+		}
+	}
+
+	@Override
+	public String convertToDatabaseColumn(OfferStatus status) {
+		return status == null ? null : CODES[status.ordinal()];
+	}
+
+	@Override
+	public OfferStatus convertToEntityAttribute(String code) {
+		return code == null || code.isEmpty() ? null : OfferStatus.fromCode(code.charAt(0));
+	}
+}
@@ -0,0 +1,116 @@
+package api.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import api.util.Consts;
+
+/**
+ * Aggregates of the active offers of a product
+ * 
+ * <p>
+ * active offers are the offers which are valid, i.e. neither cancelled nor
+ * past their validity time frame. Prices are aggregated by currency as 
+ * prices in different currencies cannot be compared. Summaries are 
+ * immutable snapshots
+ * 
+ * @author Samith Silva
+ *
+ */
+public class OfferSummary {
+	
+	private final long productID;
+	
+	private final int activeOffers;
+	
+	private final Map<String, PriceRange> prices;
+	
+	private final LocalDate nextExpiry;
+
+	/**
+	 * @param productID	id of the product on which the offers are based
+	 * @param activeOffers	number of active offers
+	 * @param prices	lowest and highest price of the active offers by currency code
+	 * @param nextExpiry	last day of validity of the active offer expiring first, 
+	 * null if none of them expires
+	 */
+	public OfferSummary(long productID, int activeOffers, Map<String, PriceRange> prices, LocalDate nextExpiry) {
+		this.productID = productID;
+		this.activeOffers = activeOffers;
+		this.prices = Collections.unmodifiableMap(prices);
+		this.nextExpiry = nextExpiry;
+	}
+
+	/**
+	 * @return the productID
+	 */
+	public long getProductID() {
+		return productID;
+	}
+
+	/**
+	 * @return the number of active offers
+	 */
+	public int getActiveOffers() {
+		return activeOffers;
+	}
+
+	/**
+	 * @return the price range of the active offers by currency code
+	 */
+	public Map<String, PriceRange> getPrices() {
+		return prices;
+	}
+
+	/**
+	 * @return the nextExpiry formatted as Consts.TIMEFORMAT, null if none
+	 */
+	public String getNextExpiry() {
+		return nextExpiry == null ? null : nextExpiry.format(Consts.DATEFORMATTER);
+	}
+
+	/**
+	 * @return the nextExpiry as a date
+	 */
+	@JsonIgnore
+	public LocalDate getNextExpiryDate() {
+		return nextExpiry;
+	}
+	
+	/**
+	 * Lowest and highest price of the active offers in a currency
+	 */
+	public static class PriceRange {
+		
+		private final BigDecimal min;
+		
+		private final BigDecimal max;
+
+		/**
+		 * @param min	lowest price
+		 * @param max	highest price
+		 */
+		public PriceRange(BigDecimal min, BigDecimal max) {
+			this.min = min;
+			this.max = max;
+		}
+
+		/**
+		 * @return the lowest price
+		 */
+		public BigDecimal getMin() {
+			return min;
+		}
+
+		/**
+		 * @return the highest price
+		 */
+		public BigDecimal getMax() {
+			return max;
+		}
+	}
+}
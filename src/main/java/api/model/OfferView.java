@@ -0,0 +1,159 @@
+package api.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import api.util.OfferViewSerializer;
+
+/**
+ * Read-only view of a stored offer, returned when a single offer is retrieved
+ *
+ * <p>
+ * views are selected column by column by the {@link api.repository.OfferRepository},
+ * hence reading them neither hydrates an entity nor registers it for dirty
+ * checking. They are serialised in the same format as offers, by a dedicated
+ * serializer. Views are immutable and can be shared, e.g. through the cache
+ *
+ * @author Samith Silva
+ *
+ */
+@JsonSerialize(using = OfferViewSerializer.class)
+public final class OfferView {
+
+	private final long id;
+
+	private final String description;
+
+	private final BigDecimal price;
+
+	private final String currencyCode;
+
+	private final LocalDate createdOn;
+
+	private final int daysValidFor;
+
+	private final long productID;
+
+	private final OfferStatus status;
+
+	private final LocalDate expiresOn;
+
+	private final long version;
+
+	/**
+	 * @param id	unique offer id
+	 * @param description	offer's friendly description
+	 * @param price	the price of the offer
+	 * @param currencyCode	currency code of the price e.g. USD
+	 * @param createdOn	date on which the offer was created
+	 * @param daysValidFor	days the offer is valid for
+	 * @param productID	id of the product on which the offer is based
+	 * @param status	status of the offer
+	 * @param expiresOn	last day on which the offer is valid
+	 * @param version	version of the stored offer
+	 */
+	public OfferView(long id, String description, BigDecimal price, String currencyCode, LocalDate createdOn,
+			int daysValidFor, long productID, OfferStatus status, LocalDate expiresOn, long version) {
+		this.id = id;
+		this.description = description;
+		this.price = price;
+		this.currencyCode = currencyCode;
+		this.createdOn = createdOn;
+		this.daysValidFor = daysValidFor;
+		this.productID = productID;
+		this.status = status;
+		this.expiresOn = expiresOn;
+		this.version = version;
+	}
+
+	/**
+	 * @return the id
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * @return the description
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * @return the price
+	 */
+	public BigDecimal getPrice() {
+		return price;
+	}
+
+	/**
+	 * @return the currencyCode
+	 */
+	public String getCurrencyCode() {
+		return currencyCode;
+	}
+
+	/**
+	 * @return the createdOn as a date, null if not set
+	 */
+	public LocalDate getCreatedDate() {
+		return createdOn;
+	}
+
+	/**
+	 * @return the daysValidFor
+	 */
+	public int getDaysValidFor() {
+		return daysValidFor;
+	}
+
+	/**
+	 * @return the productID
+	 */
+	public long getProductID() {
+		return productID;
+	}
+
+	/**
+	 * @return the status
+	 */
+	public OfferStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the last day on which the offer is valid, null if it cannot be derived
+	 */
+	public LocalDate getExpiresOn() {
+		return expiresOn;
+	}
+
+	/**
+	 * @return the version of the stored offer, incremented on every write
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @param status	of the copy
+	 * @return a copy of the view with the passed status
+	 */
+	public OfferView withStatus(OfferStatus status) {
+		return new OfferView(id, description, price, currencyCode, createdOn, daysValidFor, productID,
+				status, expiresOn, version);
+	}
+
+	/**
+	 * @param price	of the copy
+	 * @param currencyCode	of the copy's price
+	 * @return a copy of the view priced as passed
+	 */
+	public OfferView withPrice(BigDecimal price, String currencyCode) {
+		return new OfferView(id, description, price, currencyCode, createdOn, daysValidFor, productID,
+				status, expiresOn, version);
+	}
+}
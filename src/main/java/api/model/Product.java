@@ -6,8 +6,12 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
 @Entity
 @Table(name = "Product")
+//products fetched along with offers may be initialised lazy proxies, whose handler is not serialised
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Product {
 	
     @Id
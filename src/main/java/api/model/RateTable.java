@@ -0,0 +1,164 @@
+package api.model;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable table of exchange rates used to convert offer prices
+ *
+ * <p>
+ * rates are given as units of each currency per unit of the base currency.
+ * The rate between every pair of currencies is computed once when the table 
+ * is built, with 34 significant digits, hence a conversion is a single 
+ * multiplication rounded half even to the fraction digits of the target 
+ * currency (e.g. 2 for EUR, 0 for JPY). A table is never modified, new rates
+ * are loaded into a new table which replaces the previous one
+ *
+ * @author Samith Silva
+ *
+ */
+public final class RateTable {
+
+	private final long version;
+
+	private final String base;
+
+	//position of each currency in the rate arrays
+	private final Map<String, Integer> indexes;
+
+	//rates to convert from the first currency to the second one
+	private final BigDecimal[][] crossRates;
+
+	//fraction digits of each currency
+	private final int[] scales;
+
+	/**
+	 * @param version	identifies the rates, changes whenever different rates are loaded
+	 * @param base	currency the rates are relative to
+	 * @param rates	units of each currency per unit of the base currency, 
+	 * the base currency is added if missing
+	 * @throws IllegalArgumentException if a currency code is not valid or a rate is not positive
+	 */
+	public RateTable(long version, String base, Map<String, BigDecimal> rates) {
+		Map<String, BigDecimal> all = new HashMap<String, BigDecimal>(rates);
+		all.putIfAbsent(base, BigDecimal.ONE);
+
+		String[] currencies = all.keySet().toArray(new String[all.size()]);
+		Map<String, Integer> indexes = new HashMap<String, Integer>();
+		int[] scales = new int[currencies.length];
+		for (int i = 0; i < currencies.length; i++) {
+			BigDecimal rate = all.get(currencies[i]);
+			if (rate == null || rate.signum() <= 0) {
+				throw new IllegalArgumentException(String.format("rate of %s must be positive", currencies[i]));
+			}
+			//rejects unknown codes and gives the number of decimals prices are rounded to
+			scales[i] = Math.max(0, Currency.getInstance(currencies[i]).getDefaultFractionDigits());
+			indexes.put(currencies[i], i);
+		}
+
+		BigDecimal[][] crossRates = new BigDecimal[currencies.length][currencies.length];
+		for (int from = 0; from < currencies.length; from++) {
+			for (int to = 0; to < currencies.length; to++) {
+				crossRates[from][to] = all.get(currencies[to]).divide(all.get(currencies[from]), MathContext.DECIMAL128);
+			}
+		}
+
+		this.version = version;
+		this.base = base;
+		this.indexes = Collections.unmodifiableMap(indexes);
+		this.crossRates = crossRates;
+		this.scales = scales;
+	}
+
+	/**
+	 * converts an amount from a currency to another
+	 *
+	 * @param amount	to be converted
+	 * @param from	currency of the amount
+	 * @param to	currency the amount is converted to
+	 * @return the converted amount rounded to the fraction digits of the target currency,
+	 * the passed amount if both currencies are the same, null if either is not in the table
+	 */
+	public BigDecimal convert(BigDecimal amount, String from, String to) {
+		if (from.equals(to)) {
+			return amount;
+		}
+		Integer fromIndex = indexes.get(from);
+		Integer toIndex = indexes.get(to);
+		if (fromIndex == null || toIndex == null) {
+			return null;
+		}
+		int target = toIndex;
+		return amount.multiply(crossRates[fromIndex][target]).setScale(scales[target], RoundingMode.HALF_EVEN);
+	}
+
+	/**
+	 * converts the price of an offer
+	 *
+	 * @param offer	to be converted, left untouched as it may be shared
+	 * @param currency	the price is converted to
+	 * @return a copy of the offer priced in the passed currency, the passed offer 
+	 * if it is already priced in it or if its currency is not in the table, callers
+	 * must check {@link #supports(String)} to tell the latter apart
+	 */
+	public Offer convert(Offer offer, String currency) {
+		BigDecimal price = convert(offer.getPrice(), offer.getCurrencyCode(), currency);
+		if (price == null || currency.equals(offer.getCurrencyCode())) {
+			return offer;
+		}
+		return offer.withPrice(price, currency);
+	}
+
+	/**
+	 * converts the price of an offer view
+	 *
+	 * @param offer	to be converted
+	 * @param currency	the price is converted to
+	 * @return a copy of the view priced in the passed currency, the passed view 
+	 * if it is already priced in it or if its currency is not in the table, callers
+	 * must check {@link #supports(String)} to tell the latter apart
+	 */
+	public OfferView convert(OfferView offer, String currency) {
+		BigDecimal price = convert(offer.getPrice(), offer.getCurrencyCode(), currency);
+		if (price == null || currency.equals(offer.getCurrencyCode())) {
+			return offer;
+		}
+		return offer.withPrice(price, currency);
+	}
+
+	/**
+	 * @param currency	code of the currency
+	 * @return true if amounts can be converted to and from the currency
+	 */
+	public boolean supports(String currency) {
+		return indexes.containsKey(currency);
+	}
+
+	/**
+	 * @return the codes of the currencies in the table, sorted
+	 */
+	public Set<String> getCurrencies() {
+		return Collections.unmodifiableSet(new TreeSet<String>(indexes.keySet()));
+	}
+
+	/**
+	 * @return the currency the rates are relative to
+	 */
+	public String getBase() {
+		return base;
+	}
+
+	/**
+	 * @return the version of the rates
+	 */
+	public long getVersion() {
+		return version;
+	}
+}
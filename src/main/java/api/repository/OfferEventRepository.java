@@ -0,0 +1,108 @@
+package api.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import api.model.OfferEvent;
+import api.model.OfferEventType;
+import api.model.OfferStatus;
+
+/**
+ * Repository of the offer event outbox
+ * 
+ * <p>
+ * events are recorded by insert ... select statements reading the offers
+ * they describe, so that a chunk of offers gets its events in a single 
+ * statement without the offers being loaded. Recording requires the 
+ * transaction changing the offers to be active, events and changes are 
+ * committed together or not at all
+ */
+public interface OfferEventRepository extends CrudRepository<OfferEvent, Long> {
+
+	/**
+	 * inserts an event for each of the passed offers
+	 * 
+	 * @param ids	of the offers the event happened to
+	 * @param type	name of the OfferEventType
+	 * @return number of events recorded
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	@Modifying(flushAutomatically = true)
+	@Query(value = "insert into offer_event (offer_id, productid, type, status, created_at) "
+			+ "select o.id, o.productid, :type, o.status, current_timestamp from offer o "
+			+ "where o.id in (:ids)", nativeQuery = true)
+	int insertEvents(@Param("ids") Collection<Long> ids, @Param("type") String type);
+	
+	/**
+	 * inserts an event for each of the passed offers stored with the passed status
+	 * 
+	 * @param ids	of the offers the event may have happened to
+	 * @param type	name of the OfferEventType
+	 * @param status	code of the OfferStatus the offers must be stored with
+	 * @return number of events recorded
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	@Modifying(flushAutomatically = true)
+	@Query(value = "insert into offer_event (offer_id, productid, type, status, created_at) "
+			+ "select o.id, o.productid, :type, o.status, current_timestamp from offer o "
+			+ "where o.id in (:ids) and o.status = :status", nativeQuery = true)
+	int insertEventsInStatus(@Param("ids") Collection<Long> ids, @Param("type") String type, 
+			@Param("status") String status);
+	
+	/**
+	 * records an event for each of the passed offers
+	 * 
+	 * @param ids	of the offers the event happened to
+	 * @param type	of the event
+	 * @return number of events recorded
+	 */
+	default int record(Collection<Long> ids, OfferEventType type) {
+		return insertEvents(ids, type.name());
+	}
+	
+	/**
+	 * records an event for each of the passed offers now stored with the passed status
+	 * 
+	 * <p>
+	 * offers are expected to have just been moved to the status within the 
+	 * current transaction, which must have held their rows locked since it 
+	 * read their previous status. Offers found in the status without being 
+	 * moved by it, e.g. moved by a concurrent transaction, would get an event too
+	 * 
+	 * @param ids	of the offers the event may have happened to
+	 * @param type	of the event
+	 * @param status	the offers must be stored with
+	 * @return number of events recorded
+	 */
+	default int record(Collection<Long> ids, OfferEventType type, OfferStatus status) {
+		return insertEventsInStatus(ids, type.name(), String.valueOf(status.getCode()));
+	}
+	
+	/**
+	 * retrieves the oldest events of the outbox
+	 * 
+	 * @param pageable	bounds the number of events returned
+	 * @return events in the order they were recorded
+	 */
+	@Query("select e from OfferEvent e order by e.id")
+	List<OfferEvent> findOldest(Pageable pageable);
+	
+	/**
+	 * removes delivered events from the outbox
+	 * 
+	 * @param ids	of the delivered events
+	 * @return number of events removed
+	 */
+	@Transactional
+	@Modifying
+	@Query("delete from OfferEvent e where e.id in :ids")
+	int deleteDelivered(@Param("ids") Collection<Long> ids);
+}
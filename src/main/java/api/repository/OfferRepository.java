@@ -1,14 +1,212 @@
 package api.repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import api.model.Offer;
+import api.model.OfferStatus;
 
 /**
  * Repository used to delegate custom updates and CRUD operations
  */
-public interface OfferRepository extends CrudRepository<Offer, Long>{
+public interface OfferRepository extends CrudRepository<Offer, Long>, OfferRepositoryCustom {
+	
+	/**
+	 * retrieves an offer along with its product in a single query
+	 * 
+	 * @param id	of the offer
+	 * @return the offer, whose product is loaded unless it does not exist
+	 */
+	@EntityGraph(attributePaths = "product")
+	Optional<Offer> findWithProductById(long id);
 
+	/**
+	 * retrieves the ids of the offers which are past their validity time frame
+	 * but still carry one of the passed statuses
+	 * 
+	 * @param statuses	statuses an offer can be expired from
+	 * @param today	current date, offers expiring before this date are returned
+	 * @param pageable	bounds the number of ids returned
+	 * @return ids of the offers to be expired, in ascending order
+	 */
+	@Query("select o.id from Offer o where o.status in :statuses and o.expiresOn < :today order by o.id")
+	List<Long> findIdsToExpire(@Param("statuses") Collection<OfferStatus> statuses, 
+			@Param("today") LocalDate today, Pageable pageable);
+	
+	/**
+	 * sets the status of the passed offers to expired in a single statement
+	 * 
+	 * <p>
+	 * the status and expiry conditions are repeated so that offers changed
+	 * since their ids were selected (e.g. cancelled) are left untouched
+	 * 
+	 * @param ids	of the offers to be expired
+	 * @param statuses	statuses an offer can be expired from
+	 * @param expired	status to be set on the expired offers
+	 * @param today	current date
+	 * @return number of offers expired
+	 */
+	@Transactional
+	@Modifying
+	@Query("update Offer o set o.status = :expired, o.version = o.version + 1 "
+			+ "where o.id in :ids and o.status in :statuses and o.expiresOn < :today")
+	int expireOffers(@Param("ids") Collection<Long> ids, @Param("statuses") Collection<OfferStatus> statuses, 
+			@Param("expired") OfferStatus expired, @Param("today") LocalDate today);
+	
+	/**
+	 * cancels an offer in a single conditional statement
+	 * 
+	 * <p>
+	 * the offer is only updated if its status can move to cancelled and
+	 * its validity time frame has not ended, hence concurrent cancels and 
+	 * expiry sweeps cannot overwrite each other. Pending changes are flushed
+	 * before and loaded offers detached after, so that none of them is stale.
+	 * The version of the offer is incremented as on any other write
+	 * 
+	 * @param id	of the offer to be cancelled
+	 * @param statuses	statuses an offer can be cancelled from
+	 * @param cancelled	status to be set on the cancelled offer
+	 * @param today	current date
+	 * @return 1 if the offer has been cancelled, 0 otherwise
+	 */
+	@Transactional
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("update Offer o set o.status = :cancelled, o.version = o.version + 1 "
+			+ "where o.id = :id and o.status in :statuses "
+			+ "and (o.expiresOn is null or o.expiresOn >= :today)")
+	int cancel(@Param("id") long id, @Param("statuses") Collection<OfferStatus> statuses, 
+			@Param("cancelled") OfferStatus cancelled, @Param("today") LocalDate today);
+	
+	/**
+	 * cancels an offer in a single conditional statement, provided it is still at the passed version
+	 * 
+	 * <p>
+	 * like {@link #cancel(long, Collection, OfferStatus, LocalDate)}, with the 
+	 * version added to the conditions so that clients only cancel the offer 
+	 * they have read
+	 * 
+	 * @param id	of the offer to be cancelled
+	 * @param version	the offer must be stored with
+	 * @param statuses	statuses an offer can be cancelled from
+	 * @param cancelled	status to be set on the cancelled offer
+	 * @param today	current date
+	 * @return 1 if the offer has been cancelled, 0 otherwise
+	 */
+	@Transactional
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("update Offer o set o.status = :cancelled, o.version = o.version + 1 "
+			+ "where o.id = :id and o.version = :version and o.status in :statuses "
+			+ "and (o.expiresOn is null or o.expiresOn >= :today)")
+	int cancelAtVersion(@Param("id") long id, @Param("version") long version, 
+			@Param("statuses") Collection<OfferStatus> statuses, @Param("cancelled") OfferStatus cancelled, 
+			@Param("today") LocalDate today);
+	
+	/**
+	 * cancels the passed offers in a single conditional statement
+	 * 
+	 * <p>
+	 * like {@link #cancel(long, Collection, OfferStatus, LocalDate)} only the 
+	 * offers which can still be cancelled are updated
+	 * 
+	 * @param ids	of the offers to be cancelled
+	 * @param statuses	statuses an offer can be cancelled from
+	 * @param cancelled	status to be set on the cancelled offers
+	 * @param today	current date
+	 * @return number of offers cancelled
+	 */
+	@Transactional
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("update Offer o set o.status = :cancelled, o.version = o.version + 1 "
+			+ "where o.id in :ids and o.status in :statuses "
+			+ "and (o.expiresOn is null or o.expiresOn >= :today)")
+	int cancelAll(@Param("ids") Collection<Long> ids, @Param("statuses") Collection<OfferStatus> statuses, 
+			@Param("cancelled") OfferStatus cancelled, @Param("today") LocalDate today);
+	
+	/**
+	 * retrieves which of the passed offers can still be cancelled
+	 * 
+	 * <p>
+	 * the returned rows are locked until the current transaction ends, so 
+	 * that no concurrent transaction can change them before they are cancelled
+	 * 
+	 * @param ids	of the offers
+	 * @param statuses	statuses an offer can be cancelled from
+	 * @param today	current date, offers whose validity time frame ended before it are left out
+	 * @return ids of the offers which can be cancelled, in ascending order
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select o.id from Offer o where o.id in :ids and o.status in :statuses "
+			+ "and (o.expiresOn is null or o.expiresOn >= :today) order by o.id")
+	List<Long> findCancellableIdsIn(@Param("ids") Collection<Long> ids, 
+			@Param("statuses") Collection<OfferStatus> statuses, @Param("today") LocalDate today);
+	
+	/**
+	 * streams the fields aggregated by the offer summaries of the offers which 
+	 * carry one of the passed statuses and whose validity time frame has not ended
+	 * 
+	 * <p>
+	 * no offer is loaded into the persistence context, rows are fetched 500 
+	 * at a time. The stream must be consumed and closed within a transaction
+	 * 
+	 * @param statuses	statuses of the active offers
+	 * @param today	current date, offers whose validity time frame ended before it are left out
+	 * @return rows of id, productID, price, currencyCode and expiresOn
+	 */
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("select o.id, o.productID, o.price, o.currencyCode, o.expiresOn from Offer o "
+			+ "where o.status in :statuses and (o.expiresOn is null or o.expiresOn >= :today)")
+	Stream<Object[]> streamActive(@Param("statuses") Collection<OfferStatus> statuses, @Param("today") LocalDate today);
+	
+	/**
+	 * retrieves the stored status of an offer without loading the offer
+	 * 
+	 * @param id	of the offer
+	 * @return the stored status, null if the offer does not exist
+	 */
+	@Query("select o.status from Offer o where o.id = :id")
+	OfferStatus findStatusById(@Param("id") long id);
+	
+	/**
+	 * retrieves the stored version of an offer without loading the offer
+	 * 
+	 * @param id	of the offer
+	 * @return the stored version, null if the offer does not exist
+	 */
+	@Query("select o.version from Offer o where o.id = :id")
+	Long findVersionById(@Param("id") long id);
+	
+	/**
+	 * counts the offers stored with each status
+	 * 
+	 * @return pairs of status and number of offers stored with it
+	 */
+	@Query("select o.status, count(o) from Offer o group by o.status")
+	List<Object[]> countByStatus();
+	
+	/**
+	 * counts the offers past their validity time frame which
+	 * still carry one of the passed statuses
+	 * 
+	 * @param statuses	statuses an offer can be expired from
+	 * @param today	current date, offers expiring before this date are counted
+	 * @return number of offers waiting to be expired
+	 */
+	@Query("select count(o) from Offer o where o.status in :statuses and o.expiresOn < :today")
+	long countToExpire(@Param("statuses") Collection<OfferStatus> statuses, @Param("today") LocalDate today);
 }
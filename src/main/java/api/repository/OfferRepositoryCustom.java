@@ -0,0 +1,99 @@
+package api.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import api.model.Offer;
+import api.model.OfferFilter;
+import api.model.OfferStatus;
+import api.model.OfferView;
+
+/**
+ * Custom queries on offers which cannot be derived by Spring Data
+ */
+public interface OfferRepositoryCustom {
+
+	/**
+	 * retrieves a page of offers matching the passed filter using keyset pagination
+	 * 
+	 * <p>
+	 * only the criteria set in the filter are added to the query so that it 
+	 * can be served by the composite indexes on the Offer table, the page is 
+	 * found by seeking past the passed id rather than by offset, hence the 
+	 * cost of a page does not depend on how deep it is. The status criterion
+	 * matches the effective status, computed from the stored status and the
+	 * expiry date, hence offers not swept yet are matched as expired
+	 * 
+	 * @param filter	criteria the offers must match
+	 * @param today	current date the effective status is computed against
+	 * @param afterId	id after which the page starts
+	 * @param limit	maximum number of offers in the page
+	 * @return offers matching the filter in ascending id order
+	 */
+	List<Offer> findPage(OfferFilter filter, LocalDate today, long afterId, int limit);
+	
+	/**
+	 * retrieves a page of offers matching the passed filter, like 
+	 * {@link #findPage(OfferFilter, LocalDate, long, int)}, optionally along with their products
+	 * 
+	 * <p>
+	 * products are fetched through an outer join of the same query, offers 
+	 * whose product does not exist are still returned, without product
+	 * 
+	 * @param filter	criteria the offers must match
+	 * @param today	current date the effective status is computed against
+	 * @param afterId	id after which the page starts
+	 * @param limit	maximum number of offers in the page
+	 * @param withProduct	true if the products of the offers are to be loaded
+	 * @return offers matching the filter in ascending id order
+	 */
+	List<Offer> findPage(OfferFilter filter, LocalDate today, long afterId, int limit, boolean withProduct);
+	
+	/**
+	 * retrieves a read-only view of an offer
+	 * 
+	 * <p>
+	 * the columns are selected into the view, no offer is loaded into the 
+	 * persistence context nor snapshotted for dirty checking
+	 * 
+	 * @param id	of the offer
+	 * @return the view of the stored offer, null if the offer does not exist
+	 */
+	OfferView findViewById(long id);
+	
+	/**
+	 * retrieves the ids of the offers matching the passed filter which can still be cancelled
+	 * 
+	 * <p>
+	 * only ids are selected, no offer is loaded into the persistence context
+	 * 
+	 * @param filter	criteria the offers must match
+	 * @param statuses	statuses an offer can be cancelled from
+	 * @param today	current date, offers whose validity time frame ended before it are left out
+	 * @param afterId	id after which the offers are searched
+	 * @param limit	maximum number of ids returned
+	 * @return ids of the offers to be cancelled, in ascending order
+	 */
+	List<Long> findCancellableIds(OfferFilter filter, Collection<OfferStatus> statuses, LocalDate today, 
+			long afterId, int limit);
+	
+	/**
+	 * streams every offer matching the passed filter
+	 * 
+	 * <p>
+	 * rows are read through a forward-only cursor, fetched from the db 
+	 * fetchSize at a time, and each offer is detached from the persistence 
+	 * context once read, hence the memory used does not grow with the number 
+	 * of offers. The stream must be consumed and closed within the transaction
+	 * it was opened in. Like {@link #findPage(OfferFilter, LocalDate, long, int)}
+	 * the status criterion matches the effective status
+	 * 
+	 * @param filter	criteria the offers must match
+	 * @param today	current date the effective status is computed against
+	 * @param fetchSize	number of rows fetched from the db at a time
+	 * @return offers matching the filter in ascending id order, read-only
+	 */
+	Stream<Offer> streamAll(OfferFilter filter, LocalDate today, int fetchSize);
+}
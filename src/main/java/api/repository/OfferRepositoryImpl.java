@@ -0,0 +1,182 @@
+package api.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.jpa.QueryHints;
+
+import api.model.Offer;
+import api.model.OfferFilter;
+import api.model.OfferStatus;
+import api.model.OfferView;
+
+/**
+ * Implementation of the custom queries on offers, 
+ * picked up by Spring Data through the Impl suffix
+ */
+public class OfferRepositoryImpl implements OfferRepositoryCustom {
+	
+	private static final String VIEW_BY_ID = "select new api.model.OfferView(o.id, o.description, o.price, "
+			+ "o.currencyCode, o.createdOn, o.daysValidFor, o.productID, o.status, o.expiresOn, o.version) "
+			+ "from Offer o where o.id = :id";
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<Offer> findPage(OfferFilter filter, LocalDate today, long afterId, int limit) {
+		return findPage(filter, today, afterId, limit, false);
+	}
+	
+	@Override
+	public List<Offer> findPage(OfferFilter filter, LocalDate today, long afterId, int limit, boolean withProduct) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Offer> query = cb.createQuery(Offer.class);
+		Root<Offer> offer = query.from(Offer.class);
+		if (withProduct) {
+			//a single valued association, the limit is still applied by the db
+			offer.fetch("product", JoinType.LEFT);
+		}
+		
+		List<Predicate> predicates = predicates(cb, offer, filter, today, afterId);
+		
+		query.select(offer)
+			.where(predicates.toArray(new Predicate[predicates.size()]))
+			.orderBy(cb.asc(offer.get("id")));
+		
+		return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+	}
+
+	@Override
+	public OfferView findViewById(long id) {
+		List<OfferView> views = entityManager.createQuery(VIEW_BY_ID, OfferView.class)
+				.setParameter("id", id)
+				.getResultList();
+		return views.isEmpty() ? null : views.get(0);
+	}
+
+	@Override
+	public List<Long> findCancellableIds(OfferFilter filter, Collection<OfferStatus> statuses, LocalDate today,
+			long afterId, int limit) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Long> query = cb.createQuery(Long.class);
+		Root<Offer> offer = query.from(Offer.class);
+		
+		List<Predicate> predicates = predicates(cb, offer, filter, today, afterId);
+		predicates.add(offer.get("status").in(statuses));
+		predicates.add(cb.or(cb.isNull(offer.get("expiresOn")), 
+				cb.greaterThanOrEqualTo(offer.<LocalDate>get("expiresOn"), today)));
+		
+		query.select(offer.<Long>get("id"))
+			.where(predicates.toArray(new Predicate[predicates.size()]))
+			.orderBy(cb.asc(offer.get("id")));
+		
+		return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+	}
+	
+	@Override
+	public Stream<Offer> streamAll(OfferFilter filter, LocalDate today, int fetchSize) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Offer> query = cb.createQuery(Offer.class);
+		Root<Offer> offer = query.from(Offer.class);
+		
+		List<Predicate> predicates = predicates(cb, offer, filter, today, 0);
+		
+		query.select(offer)
+			.where(predicates.toArray(new Predicate[predicates.size()]))
+			.orderBy(cb.asc(offer.get("id")));
+		
+		//read-only offers are not snapshotted for dirty checking
+		return entityManager.createQuery(query)
+				.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+				.setHint(QueryHints.HINT_READONLY, true)
+				.getResultStream()
+				.map(this::detach);
+	}
+	
+	/**
+	 * @param offer	read by a query
+	 * @return the passed offer, no longer held by the persistence context
+	 */
+	private Offer detach(Offer offer) {
+		entityManager.detach(offer);
+		return offer;
+	}
+	
+	/**
+	 * builds the predicates of the criteria set in the filter
+	 * 
+	 * @param cb	criteria builder
+	 * @param offer	root of the query
+	 * @param filter	criteria the offers must match
+	 * @param today	current date the effective status is computed against
+	 * @param afterId	id after which the offers are searched
+	 * @return the predicates, which can be added to
+	 */
+	private static List<Predicate> predicates(CriteriaBuilder cb, Root<Offer> offer, OfferFilter filter, 
+			LocalDate today, long afterId) {
+		List<Predicate> predicates = new ArrayList<Predicate>();
+		predicates.add(cb.greaterThan(offer.<Long>get("id"), afterId));
+		if (filter.getProductID() != null) {
+			predicates.add(cb.equal(offer.get("productID"), filter.getProductID()));
+		}
+		if (filter.getStatus() != null) {
+			predicates.add(effectiveStatus(cb, offer, filter.getStatus(), today));
+		}
+		if (filter.getCurrencyCode() != null) {
+			predicates.add(cb.equal(offer.get("currencyCode"), filter.getCurrencyCode()));
+		}
+		if (filter.getMinPrice() != null) {
+			predicates.add(cb.greaterThanOrEqualTo(offer.get("price"), filter.getMinPrice()));
+		}
+		if (filter.getMaxPrice() != null) {
+			predicates.add(cb.lessThanOrEqualTo(offer.get("price"), filter.getMaxPrice()));
+		}
+		return predicates;
+	}
+	
+	/**
+	 * matches the offers whose effective status is the passed one
+	 * 
+	 * <p>
+	 * offers which are not terminal and whose validity time frame ended before 
+	 * today are expired even though the sweeper has not written it yet, and
+	 * undefined offers still within their time frame are valid. Offers without
+	 * expiry date keep their stored status
+	 * 
+	 * @param cb	criteria builder
+	 * @param offer	root of the query
+	 * @param status	effective status the offers must have
+	 * @param today	current date
+	 * @return the predicate on the stored status and expiry date
+	 */
+	private static Predicate effectiveStatus(CriteriaBuilder cb, Root<Offer> offer, OfferStatus status, 
+			LocalDate today) {
+		Path<OfferStatus> stored = offer.get("status");
+		Path<LocalDate> expiresOn = offer.get("expiresOn");
+		Predicate open = stored.in(OfferStatus.UNDEFINED, OfferStatus.VALID);
+		switch (status) {
+		case UNDEFINED:
+			return cb.and(cb.equal(stored, OfferStatus.UNDEFINED), cb.isNull(expiresOn));
+		case VALID:
+			return cb.or(cb.and(open, cb.greaterThanOrEqualTo(expiresOn, today)),
+					cb.and(cb.equal(stored, OfferStatus.VALID), cb.isNull(expiresOn)));
+		case EXPIRED:
+			return cb.or(cb.equal(stored, OfferStatus.EXPIRED), cb.and(open, cb.lessThan(expiresOn, today)));
+		default:
+			return cb.equal(stored, status);
+		}
+	}
+}
@@ -1,13 +1,30 @@
 package api.repository;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import api.model.Product;
 
 /**
- * Repository used to delegate custom updates and CRUD operations, 
- * will be utilised in future for custom queries on products
+ * Repository used to delegate custom updates and CRUD operations on products
+ * 
+ * <p>
+ * products are rendered along with offers through the Offer.product 
+ * association, fetched by the queries of the {@link OfferRepository}, 
+ * rather than looked up here one offer at a time
  */
 public interface ProductRepository extends CrudRepository<Product, Long>{
 	
+	/**
+	 * retrieves which of the passed product ids exist without loading the products
+	 * 
+	 * @param ids	of the products to be checked
+	 * @return ids of the products found in the db
+	 */
+	@Query("select p.id from Product p where p.id in :ids")
+	List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,107 @@
+package api.repository;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every call made to the offer and product repositories
+ *
+ * <p>
+ * calls are recorded by the offer.repository timer, tagged with the
+ * repository, the method called and the exception thrown if any.
+ * Timers of successful calls are resolved once per repository method
+ * and reused, so that timing a call does not allocate
+ *
+ * @author Samith Silva
+ *
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+	static final String TIMER_NAME = "offer.repository";
+
+	private static final String NO_EXCEPTION = "none";
+
+	private final MeterRegistry registry;
+
+	//timers of the successful calls by repository proxy class and method
+	private final ConcurrentMap<Class<?>, ConcurrentMap<Method, Timer>> timers =
+			new ConcurrentHashMap<Class<?>, ConcurrentMap<Method, Timer>>();
+
+	public RepositoryMetricsAspect(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * records the duration of a repository call
+	 *
+	 * @param call	repository call to be timed
+	 * @return the value returned by the repository
+	 * @throws Throwable the exception thrown by the repository, rethrown as is
+	 */
+	@Around("execution(* api.repository.OfferRepository.*(..)) || execution(* api.repository.ProductRepository.*(..))")
+	public Object time(ProceedingJoinPoint call) throws Throwable {
+		long start = System.nanoTime();
+		try {
+			Object result = call.proceed();
+			successTimer(call).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			return result;
+		} catch (Throwable t) {
+			timer(call, t.getClass().getSimpleName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			throw t;
+		}
+	}
+
+	private Timer successTimer(ProceedingJoinPoint call) {
+		Class<?> proxyClass = call.getThis().getClass();
+		ConcurrentMap<Method, Timer> byMethod = timers.get(proxyClass);
+		if (byMethod == null) {
+			timers.putIfAbsent(proxyClass, new ConcurrentHashMap<Method, Timer>());
+			byMethod = timers.get(proxyClass);
+		}
+		
+		Method method = ((MethodSignature) call.getSignature()).getMethod();
+		Timer timer = byMethod.get(method);
+		if (timer == null) {
+			//registering the same timer twice returns the one already registered
+			timer = timer(call, NO_EXCEPTION);
+			byMethod.put(method, timer);
+		}
+		return timer;
+	}
+
+	private Timer timer(ProceedingJoinPoint call, String exception) {
+		return Timer.builder(TIMER_NAME)
+				.description("calls made to the offer and product repositories")
+				.tag("repository", repositoryName(call.getThis()))
+				.tag("method", call.getSignature().getName())
+				.tag("exception", exception)
+				.register(registry);
+	}
+
+	/**
+	 * @param proxy	repository proxy
+	 * @return simple name of the repository interface implemented by the proxy
+	 */
+	private static String repositoryName(Object proxy) {
+		for (Class<?> type : AopProxyUtils.proxiedUserInterfaces(proxy)) {
+			if (type.getPackage().equals(RepositoryMetricsAspect.class.getPackage())) {
+				return type.getSimpleName();
+			}
+		}
+		return proxy.getClass().getSimpleName();
+	}
+}
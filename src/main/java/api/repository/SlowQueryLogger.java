@@ -0,0 +1,166 @@
+package api.repository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import api.util.LogRateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Logs the SQL statements taking longer than a threshold to run
+ *
+ * <p>
+ * the data source is wrapped so that the connections it hands out, and the 
+ * statements they create, time every execution. Statements crossing the 
+ * threshold are counted by the offer.db.slow.queries counter and logged with 
+ * their SQL at a bounded rate. A negative threshold, the default, leaves the 
+ * data source untouched
+ *
+ * @author Samith Silva
+ *
+ */
+@Component
+public class SlowQueryLogger implements BeanPostProcessor, MeterBinder {
+
+	static final String COUNTER_NAME = "offer.db.slow.queries";
+
+	protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+	private final long thresholdNanos;
+
+	private final LogRateLimiter logLimiter;
+
+	private final LongAdder slowQueries = new LongAdder();
+
+	/**
+	 * @param thresholdMillis	duration from which a statement is slow, negative to disable the logging
+	 * @param logsPerMinute	maximum number of slow statements logged per minute, further ones are only counted
+	 */
+	public SlowQueryLogger(@Value("${offer.db.slow-query-ms:-1}") long thresholdMillis,
+			@Value("${offer.db.slow-query-logs-per-minute:10}") int logsPerMinute) {
+		this.thresholdNanos = thresholdMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.logLimiter = new LogRateLimiter(logsPerMinute, 1, TimeUnit.MINUTES);
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		if (thresholdNanos < 0 || !(bean instanceof DataSource)) {
+			return bean;
+		}
+		log.info("postProcessAfterInitialization(): logging slow statements dataSource={} thresholdMs={}", 
+				beanName, TimeUnit.NANOSECONDS.toMillis(thresholdNanos));
+		return wrap(DataSource.class, bean, null);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder(COUNTER_NAME, slowQueries, LongAdder::sum)
+				.description("SQL statements slower than the slow query threshold")
+				.register(registry);
+	}
+
+	/**
+	 * @return number of slow statements run since start up
+	 */
+	public long getSlowQueries() {
+		return slowQueries.sum();
+	}
+
+	/**
+	 * wraps a JDBC object so that the statements it runs, or the objects it creates, are timed
+	 *
+	 * @param type	JDBC interface implemented by the wrapper
+	 * @param target	JDBC object to be wrapped
+	 * @param sql	SQL prepared by the target, null if it is not a prepared statement
+	 * @return the wrapper
+	 */
+	private Object wrap(Class<?> type, Object target, String sql) {
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new TimingHandler(target, sql));
+	}
+
+	/**
+	 * counts and logs a slow statement
+	 *
+	 * @param sql	of the statement
+	 * @param elapsedNanos	time taken by the statement
+	 */
+	private void slow(String sql, long elapsedNanos) {
+		slowQueries.increment();
+		if (!log.isWarnEnabled() || !logLimiter.tryAcquire()) {
+			return;
+		}
+		long suppressed = logLimiter.drainDenied();
+		if (suppressed > 0) {
+			log.warn("slow statements not logged since the last one logged count={}", suppressed);
+		}
+		log.warn("slow statement elapsedMs={} sql={}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), sql);
+	}
+
+	/**
+	 * times the execute methods of a statement and wraps the connections and statements returned
+	 */
+	private class TimingHandler implements InvocationHandler {
+
+		private final Object target;
+
+		private final String sql;
+
+		TimingHandler(Object target, String sql) {
+			this.target = target;
+			this.sql = sql;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("equals")) {
+				return proxy == args[0];
+			}
+			if (!name.startsWith("execute")) {
+				Object result = call(method, args);
+				Class<?> type = method.getReturnType();
+				if (result != null && (type == Connection.class || Statement.class.isAssignableFrom(type))) {
+					//prepareStatement and prepareCall take the SQL as first argument
+					String prepared = name.startsWith("prepare") ? (String) args[0] : null;
+					return wrap(type, result, prepared);
+				}
+				return result;
+			}
+
+			long start = System.nanoTime();
+			try {
+				return call(method, args);
+			} finally {
+				long elapsed = System.nanoTime() - start;
+				if (elapsed >= thresholdNanos) {
+					//plain statements take the SQL as first argument, except when run in batch
+					slow(sql != null ? sql : args != null && args.length > 0 ? String.valueOf(args[0]) : "batch", elapsed);
+				}
+			}
+		}
+
+		private Object call(Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package api.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import api.model.RateTable;
+
+/**
+ * Holds the exchange rates offer prices are converted with
+ *
+ * <p>
+ * the rates are read from a properties file, holding the base currency 
+ * under the base key and the units of every other currency per unit of the 
+ * base one, e.g. USD=1.08. The file is checked periodically and, when it 
+ * changed, loaded into a new RateTable which replaces the current one 
+ * through a single reference swap, readers never wait for a reload and 
+ * always see a complete table. A file which cannot be loaded leaves the 
+ * current rates in place. The version of a table is derived from the 
+ * content of the file, hence the same rates keep the same version across 
+ * restarts and different rates get a different one
+ *
+ * @author Samith Silva
+ *
+ */
+@Component
+public class ExchangeRates {
+
+	static final String BASE_KEY = "base";
+
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${offer.rates.location:classpath:rates.properties}")
+    private String location;
+
+    private final AtomicReference<RateTable> table = new AtomicReference<RateTable>();
+
+    //last modification time of the loaded file, reloads are skipped while it does not change
+    private long lastModified = Long.MIN_VALUE;
+
+    /**
+     * loads the rates at start up, failing it if they cannot be loaded
+     *
+     * @throws IOException if the file cannot be read
+     */
+    @PostConstruct
+    public synchronized void init() throws IOException {
+    	Resource resource = resourceLoader.getResource(location);
+    	long modified = lastModified(resource);
+    	swap(load(resource), modified);
+    	log.info("init(): exchange rates loaded location={} currencies={}", location, table.get().getCurrencies());
+    }
+
+    /**
+     * scheduled entry point, loads the rates again if the file changed
+     */
+    @Scheduled(fixedDelayString = "${offer.rates.reload-ms:60000}", 
+    		initialDelayString = "${offer.rates.reload-ms:60000}")
+    public synchronized void reload() {
+    	Resource resource = resourceLoader.getResource(location);
+    	long modified = lastModified(resource);
+    	if (modified == lastModified) {
+    		return;
+    	}
+    	try {
+    		swap(load(resource), modified);
+    		log.info("reload(): exchange rates reloaded location={} version={}", location, table.get().getVersion());
+    	} catch (IOException | RuntimeException e) {
+    		//keeps serving the current rates until the file is fixed
+    		log.error("reload(): exchange rates not reloaded location={} error={}", location, e.getMessage());
+    	}
+    }
+
+    /**
+     * @return the current rates, the same table should be used for a whole request
+     */
+    public RateTable getTable() {
+    	return table.get();
+    }
+
+    /**
+     * makes the passed rates the current ones
+     *
+     * @param rates	to be used from now on
+     * @param modified	last modification time of the file they were read from
+     */
+    private void swap(RateTable rates, long modified) {
+    	table.set(rates);
+    	lastModified = modified;
+    }
+
+    /**
+     * reads the rates from the passed file
+     *
+     * @param resource	holding the rates
+     * @return the rates
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file does not hold valid rates
+     */
+    private RateTable load(Resource resource) throws IOException {
+    	byte[] content;
+    	try (InputStream in = resource.getInputStream()) {
+    		content = StreamUtils.copyToByteArray(in);
+    	}
+    	Properties properties = new Properties();
+    	properties.load(new ByteArrayInputStream(content));
+
+    	String base = properties.getProperty(BASE_KEY);
+    	if (base == null) {
+    		throw new IllegalArgumentException(String.format("%s is missing the %s currency", location, BASE_KEY));
+    	}
+    	Map<String, BigDecimal> rates = new HashMap<String, BigDecimal>();
+    	for (String currency : properties.stringPropertyNames()) {
+    		if (!BASE_KEY.equals(currency)) {
+    			rates.put(currency.trim(), new BigDecimal(properties.getProperty(currency).trim()));
+    		}
+    	}
+    	return new RateTable(versionOf(content), base.trim(), rates);
+    }
+
+    /**
+     * @param content	of the rates file
+     * @return the first 63 bits of the SHA-256 digest of the content
+     */
+    private static long versionOf(byte[] content) {
+    	try {
+    		return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(content)).getLong() & Long.MAX_VALUE;
+    	} catch (NoSuchAlgorithmException e) {
+    		//every Java platform is required to support SHA-256
+    		throw new IllegalStateException(e);
+    	}
+    }
+
+    /**
+     * @param resource	holding the rates
+     * @return the last modification time of the file, 0 if it is unknown
+     */
+    private static long lastModified(Resource resource) {
+    	try {
+    		return resource.lastModified();
+    	} catch (IOException e) {
+    		return 0;
+    	}
+    }
+}
@@ -0,0 +1,39 @@
+package api.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import api.model.OfferEvent;
+
+/**
+ * Stand-in sink writing the offer events to the log
+ * 
+ * <p>
+ * each batch is logged on a single line, every event on its own line at debug level
+ * 
+ * @author Samith Silva
+ *
+ */
+@Component
+public class LoggingOfferEventSink implements OfferEventSink {
+	
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+	@Override
+	public boolean publish(List<OfferEvent> events) {
+		if (log.isDebugEnabled()) {
+			for (OfferEvent event : events) {
+				log.debug("publish(): offer event eventId={} type={} offerId={} productId={} status={}", 
+						event.getId(), event.getType(), event.getOfferID(), event.getProductID(), event.getStatus());
+			}
+		}
+		if (log.isInfoEnabled()) {
+			log.info("publish(): offer events published count={} lastEventId={}", 
+					events.size(), events.get(events.size() - 1).getId());
+		}
+		return true;
+	}
+}
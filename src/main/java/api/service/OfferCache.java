@@ -0,0 +1,146 @@
+package api.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import api.model.OfferView;
+
+/**
+ * Read-through cache of the offers retrieved by id, held as read-only views
+ * 
+ * <p>
+ * cancelled and expired offers never change, hence they are kept until 
+ * evicted by the memory bound. Any other offer is kept until the end of the 
+ * last day of its validity time frame, the instant its status turns to expired.
+ * Offers must be invalidated explicitly whenever they are written.
+ * 
+ * <p>
+ * cached offers are shared between requests and must not be modified
+ * 
+ * @author Samith Silva
+ *
+ */
+@Component
+public class OfferCache {
+	
+	//rough heap footprint of an offer view without its strings, used to bound the cache memory
+	private static final int OFFER_BASE_BYTES = 256;
+	
+    private final Cache<Long, OfferView> offers;
+    
+    /**
+     * @param maxWeightBytes	approximate maximum number of bytes held by the cached offers
+     */
+    public OfferCache(@Value("${offer.cache.max-weight-bytes:67108864}") long maxWeightBytes) {
+    	this.offers = Caffeine.newBuilder()
+    			.maximumWeight(maxWeightBytes)
+    			.weigher((Long id, OfferView offer) -> weigh(offer))
+    			.expireAfter(new StatusAwareExpiry())
+    			.recordStats()
+    			.build();
+    }
+    
+    /**
+     * retrieves an offer from the cache, loading and caching it on misses
+     * 
+     * @param id	of the offer to be retrieved
+     * @param loader	loads the offer on misses, returns null if the offer does not exist
+     * @return the offer, null if it does not exist
+     */
+    public OfferView get(long id, Function<Long, OfferView> loader) {
+    	return offers.get(id, loader);
+    }
+    
+    /**
+     * removes an offer from the cache
+     * 
+     * <p>
+     * when called within a transaction the offer is removed again once the
+     * transaction completes, so that a concurrent read of the old offer cannot
+     * be cached after the write
+     * 
+     * @param id	of the offer to be removed
+     */
+    public void invalidate(long id) {
+    	offers.invalidate(id);
+    	if (TransactionSynchronizationManager.isSynchronizationActive()) {
+    		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+    			@Override
+    			public void afterCompletion(int status) {
+    				offers.invalidate(id);
+    			}
+    		});
+    	}
+    }
+    
+    /**
+     * @return hit, miss and eviction counters of the cache
+     */
+    public CacheStats stats() {
+    	return offers.stats();
+    }
+    
+    /**
+     * @return approximate number of offers held in memory
+     */
+    public long size() {
+    	return offers.estimatedSize();
+    }
+    
+    /**
+     * @param offer	to be weighed
+     * @return approximate number of bytes held by the offer
+     */
+    private static int weigh(OfferView offer) {
+    	int chars = length(offer.getDescription()) + length(offer.getCurrencyCode());
+    	return OFFER_BASE_BYTES + 2 * chars;
+    }
+    
+    private static int length(String s) {
+    	return s == null ? 0 : s.length();
+    }
+    
+    /**
+     * expires offers when their status can change
+     */
+    private static class StatusAwareExpiry implements Expiry<Long, OfferView> {
+
+		@Override
+		public long expireAfterCreate(Long id, OfferView offer, long currentTime) {
+			if (offer.getStatus().isTerminal()) {
+				return Long.MAX_VALUE;
+			}
+			LocalDate expiresOn = offer.getExpiresOn();
+			if (expiresOn == null) {
+				return 0;
+			}
+			//the offer turns to expired once the last day of its validity time frame is over
+			long expiresAtMillis = expiresOn.plusDays(1).atStartOfDay(ZoneId.systemDefault())
+					.toInstant().toEpochMilli();
+			long remainingMillis = Math.max(0, expiresAtMillis - System.currentTimeMillis());
+			return TimeUnit.MILLISECONDS.toNanos(remainingMillis);
+		}
+
+		@Override
+		public long expireAfterUpdate(Long id, OfferView offer, long currentTime, long currentDuration) {
+			return expireAfterCreate(id, offer, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(Long id, OfferView offer, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+    }
+}
@@ -0,0 +1,356 @@
+package api.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import api.model.OfferEvent;
+
+/**
+ * Pushes the offer events to the clients subscribed to the offers of a product, as Server-Sent Events
+ * 
+ * <p>
+ * the broadcaster is an {@link OfferEventSink}, fed by the event dispatcher.
+ * Publishing never touches a connection: each event is put in the bounded 
+ * buffer of every subscriber of its product and the subscriber is drained 
+ * by a small pool of sender threads, one drain at a time per subscriber. 
+ * A subscriber whose buffer is full is evicted, its stream is closed and 
+ * the client is expected to reconnect, hence a slow client never holds 
+ * back the dispatcher nor the other subscribers. Events are not replayed 
+ * on reconnection. Idle streams get a comment every heartbeat so that 
+ * dead connections are found out and released
+ * 
+ * <p>
+ * a write blocks its sender while the client does not read, and the stream
+ * cannot be completed meanwhile as completing waits for the write. A watchdog
+ * evicts the subscribers stuck in a write for longer than the send timeout 
+ * and replaces their sender with a new thread, so that the other subscribers
+ * keep every sender. The stuck thread is released by the write timeout of the 
+ * container, it then completes the stream and the pool shrinks back
+ * 
+ * @author Samith Silva
+ *
+ */
+@Component
+public class OfferEventBroadcaster implements OfferEventSink {
+	
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+    
+    //subscribers by product id
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<Long, Set<Subscriber>>();
+    
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    
+    private final AtomicLong evicted = new AtomicLong();
+    
+    //start of the write in progress by subscriber, in milliseconds, STALLED once its sender is replaced
+    private final Map<Subscriber, Long> sending = new ConcurrentHashMap<Subscriber, Long>();
+    
+    private static final long STALLED = -1;
+    
+    private final ThreadPoolTaskExecutor senders;
+    
+    private final int senderThreads;
+    
+    //senders stuck in a write and replaced, guarded by this
+    private int replacedSenders;
+    
+    private final int bufferSize;
+    
+    private final int maxSubscribers;
+    
+    private final long timeoutMillis;
+    
+    private final long sendTimeoutMillis;
+    
+    /**
+     * @param senderThreads	number of threads writing the events to the streams
+     * @param bufferSize	number of events held for a subscriber before it is evicted
+     * @param maxSubscribers	number of open streams from which new subscriptions are refused
+     * @param timeoutMillis	milliseconds after which a stream is closed, clients reconnect
+     * @param sendTimeoutMillis	milliseconds a sender can spend writing to a stream before its subscriber is evicted
+     */
+    public OfferEventBroadcaster(@Value("${offer.stream.sender-threads:4}") int senderThreads,
+    		@Value("${offer.stream.buffer-size:64}") int bufferSize,
+    		@Value("${offer.stream.max-subscribers:10000}") int maxSubscribers,
+    		@Value("${offer.stream.timeout-ms:1800000}") long timeoutMillis,
+    		@Value("${offer.stream.send-timeout-ms:5000}") long sendTimeoutMillis) {
+    	this.senderThreads = senderThreads;
+    	this.bufferSize = bufferSize;
+    	this.maxSubscribers = maxSubscribers;
+    	this.timeoutMillis = timeoutMillis;
+    	this.sendTimeoutMillis = sendTimeoutMillis;
+    	this.senders = new ThreadPoolTaskExecutor();
+    	senders.setCorePoolSize(senderThreads);
+    	senders.setMaxPoolSize(senderThreads);
+    	senders.setThreadNamePrefix("offer-stream-");
+    	senders.initialize();
+    }
+    
+    /**
+     * opens a stream of the events of the offers of a product
+     * 
+     * @param productID	id of the product on which the offers are based
+     * @return the stream, null if the maximum number of subscribers is reached
+     */
+    public SseEmitter subscribe(long productID) {
+    	if (subscriberCount.incrementAndGet() > maxSubscribers) {
+    		subscriberCount.decrementAndGet();
+    		return null;
+    	}
+    	
+    	Subscriber subscriber = new Subscriber(productID, newEmitter(timeoutMillis), bufferSize);
+    	subscribers.computeIfAbsent(productID, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+    	subscriber.emitter.onCompletion(() -> remove(subscriber));
+    	subscriber.emitter.onTimeout(() -> remove(subscriber));
+    	subscriber.emitter.onError(e -> remove(subscriber));
+    	return subscriber.emitter;
+    }
+    
+    /**
+     * @param timeoutMillis	milliseconds after which the stream is closed
+     * @return the stream of a new subscriber
+     */
+    protected SseEmitter newEmitter(long timeoutMillis) {
+    	return new SseEmitter(timeoutMillis);
+    }
+
+	@Override
+	public boolean publish(List<OfferEvent> events) {
+		for (OfferEvent event : events) {
+			Set<Subscriber> listeners = subscribers.get(event.getProductID());
+			if (listeners == null) {
+				continue;
+			}
+			for (Subscriber subscriber : listeners) {
+				if (!subscriber.buffer.offer(event)) {
+					evict(subscriber);
+					continue;
+				}
+				drain(subscriber);
+			}
+		}
+		//events are never held back, slow subscribers are evicted instead
+		return true;
+	}
+	
+	/**
+	 * sends a comment on every stream, a stream whose connection is gone fails and is removed
+	 */
+    @Scheduled(fixedDelayString = "${offer.stream.heartbeat-ms:15000}")
+	public void heartbeat() {
+		for (Set<Subscriber> listeners : subscribers.values()) {
+			for (Subscriber subscriber : listeners) {
+				subscriber.heartbeat = true;
+				drain(subscriber);
+			}
+		}
+	}
+	
+	/**
+	 * evicts the subscribers whose write has been blocked for longer than the
+	 * send timeout and replaces their senders
+	 */
+    @Scheduled(fixedDelayString = "${offer.stream.send-check-ms:1000}")
+	public void checkSenders() {
+		long stuckSince = System.currentTimeMillis() - sendTimeoutMillis;
+		for (Subscriber subscriber : sending.keySet()) {
+			//atomic with the end of the write, which shrinks the pool back
+			sending.computeIfPresent(subscriber, (s, since) -> {
+				if (since == STALLED || since > stuckSince) {
+					return since;
+				}
+				resizeSenders(1);
+				if (remove(subscriber)) {
+					evicted.incrementAndGet();
+				}
+				subscriber.closed = true;
+				subscriber.buffer.clear();
+				log.info("checkSenders(): stalled offer stream subscriber evicted productId={}", subscriber.productID);
+				return STALLED;
+			});
+		}
+	}
+	
+	/**
+	 * @return number of open streams
+	 */
+	public int getSubscribers() {
+		return subscriberCount.get();
+	}
+	
+	/**
+	 * @return number of subscribers evicted for not keeping up since the application started
+	 */
+	public long getEvicted() {
+		return evicted.get();
+	}
+	
+	/**
+	 * closes every stream and stops the senders
+	 */
+	@PreDestroy
+	public void shutdown() {
+		for (Set<Subscriber> listeners : subscribers.values()) {
+			for (Subscriber subscriber : listeners) {
+				subscriber.closed = true;
+				drain(subscriber);
+			}
+		}
+		senders.shutdown();
+	}
+	
+	/**
+	 * closes the stream of a subscriber which does not keep up, the stream is 
+	 * closed by a sender as the publishing thread must not wait on the connection
+	 * 
+	 * @param subscriber	to be evicted
+	 */
+	private void evict(Subscriber subscriber) {
+		if (remove(subscriber)) {
+			evicted.incrementAndGet();
+			subscriber.closed = true;
+			drain(subscriber);
+			log.info("evict(): slow offer stream subscriber evicted productId={}", subscriber.productID);
+		}
+	}
+	
+	/**
+	 * @param subscriber	to be removed
+	 * @return true if the subscriber was still registered
+	 */
+	private boolean remove(Subscriber subscriber) {
+		Set<Subscriber> listeners = subscribers.get(subscriber.productID);
+		if (listeners == null || !listeners.remove(subscriber)) {
+			return false;
+		}
+		subscriberCount.decrementAndGet();
+		//the set of a product without subscribers is dropped, unless one was added meanwhile
+		subscribers.computeIfPresent(subscriber.productID, (id, set) -> set.isEmpty() ? null : set);
+		return true;
+	}
+	
+	/**
+	 * hands the subscriber over to a sender unless one is already draining it
+	 * 
+	 * @param subscriber	holding events to be sent
+	 */
+	private void drain(Subscriber subscriber) {
+		if (subscriber.draining.compareAndSet(false, true)) {
+			try {
+				senders.execute(() -> send(subscriber));
+			} catch (RuntimeException e) {
+				//senders are shutting down
+				subscriber.draining.set(false);
+			}
+		}
+	}
+	
+	/**
+	 * writes the buffered events of a subscriber to its stream
+	 * 
+	 * @param subscriber	to be drained
+	 */
+	private void send(Subscriber subscriber) {
+		sending.put(subscriber, System.currentTimeMillis());
+		try {
+			if (subscriber.closed) {
+				subscriber.completed = true;
+				subscriber.emitter.complete();
+				return;
+			}
+			if (subscriber.heartbeat) {
+				subscriber.heartbeat = false;
+				subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+			}
+			OfferEvent event;
+			while ((event = subscriber.buffer.poll()) != null) {
+				subscriber.emitter.send(SseEmitter.event()
+						.id(Long.toString(event.getId()))
+						.name(event.getType().getLabel())
+						.data(event, MediaType.APPLICATION_JSON));
+			}
+		} catch (IOException | IllegalStateException e) {
+			//the client went away or the stream completed meanwhile
+			remove(subscriber);
+			subscriber.closed = true;
+			subscriber.completed = true;
+			subscriber.buffer.clear();
+		} finally {
+			if (sending.remove(subscriber) == STALLED) {
+				resizeSenders(-1);
+			}
+			subscriber.draining.set(false);
+		}
+		//events buffered after the last poll but before the flag was reset, 
+		//or a stream closed while its sender was stuck
+		if (subscriber.closed ? !subscriber.completed 
+				: !subscriber.buffer.isEmpty() || subscriber.heartbeat) {
+			drain(subscriber);
+		}
+	}
+	
+	/**
+	 * grows or shrinks the sender pool by the number of senders stuck in a write
+	 * 
+	 * @param delta	1 when a sender is replaced, -1 when a replaced sender is released
+	 */
+	private synchronized void resizeSenders(int delta) {
+		replacedSenders += delta;
+		int size = senderThreads + replacedSenders;
+		//the core size never exceeds the maximum size
+		if (delta > 0) {
+			senders.setMaxPoolSize(size);
+			senders.setCorePoolSize(size);
+		} else {
+			senders.setCorePoolSize(size);
+			senders.setMaxPoolSize(size);
+		}
+	}
+	
+	/**
+	 * Stream of a client with its pending events
+	 */
+	private static final class Subscriber {
+		
+		private final long productID;
+		
+		private final SseEmitter emitter;
+		
+		private final Queue<OfferEvent> buffer;
+		
+		//true while a sender is writing to the stream
+		private final AtomicBoolean draining = new AtomicBoolean();
+		
+		private volatile boolean heartbeat;
+		
+		private volatile boolean closed;
+		
+		//true once nothing is left to write, the stream being completed or failed
+		private volatile boolean completed;
+		
+		private Subscriber(long productID, SseEmitter emitter, int bufferSize) {
+			this.productID = productID;
+			this.emitter = emitter;
+			this.buffer = new ArrayBlockingQueue<OfferEvent>(bufferSize);
+		}
+	}
+}
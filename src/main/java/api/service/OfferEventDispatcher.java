@@ -0,0 +1,181 @@
+package api.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import api.model.OfferEvent;
+import api.repository.OfferEventRepository;
+
+/**
+ * Background job delivering the offer events of the outbox to the {@link OfferEventSink}s
+ * 
+ * <p>
+ * the oldest events are read in batches and handed over to every sink, a
+ * batch is removed from the outbox only once all sinks accepted it, hence
+ * events are delivered at least once and in the order they were recorded.
+ * A sink refusing or failing a batch holds back the following batches: the
+ * dispatcher backs off, doubling the delay up to a maximum, and offers the 
+ * same batch again, events keep piling up in the outbox meanwhile rather 
+ * than in memory. A single poll delivers a bounded number of batches so 
+ * that the other scheduled jobs are not held up
+ * 
+ * @author Samith Silva
+ *
+ */
+@Component
+public class OfferEventDispatcher {
+	
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+    
+    private final OfferEventRepository offerEventRepository;
+    
+    private final List<OfferEventSink> sinks;
+    
+    //maximum number of events handed over to the sinks at once
+    @Value("${offer.events.batch-size:200}")
+    private int batchSize;
+    
+    //maximum number of batches delivered by a single poll
+    @Value("${offer.events.max-batches-per-poll:20}")
+    private int maxBatchesPerPoll;
+    
+    //delay after a first refused batch, doubled on every further refusal
+    @Value("${offer.events.backoff-ms:1000}")
+    private long backoffMillis;
+    
+    @Value("${offer.events.max-backoff-ms:60000}")
+    private long maxBackoffMillis;
+    
+    //consecutive refused batches and time before which no batch is offered again
+    private int refusals;
+    private volatile long retryAt;
+    
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    //age of the oldest event waiting in the outbox when last polled
+    private final AtomicLong lagMillis = new AtomicLong();
+    
+    public OfferEventDispatcher(OfferEventRepository offerEventRepository, List<OfferEventSink> sinks) {
+    	this.offerEventRepository = offerEventRepository;
+    	this.sinks = sinks;
+    }
+    
+    /**
+     * scheduled entry point, delivers the pending events unless backing off
+     */
+    @Scheduled(fixedDelayString = "${offer.events.poll-ms:500}", 
+    		initialDelayString = "${offer.events.initial-delay-ms:5000}")
+    public void poll() {
+    	if (System.currentTimeMillis() < retryAt) {
+    		return;
+    	}
+    	try {
+    		dispatch();
+    	} catch (Exception e) {
+    		//the events stay in the outbox and are read again by the next poll
+			log.error("poll(): offer events could not be dispatched error={}", e.getMessage(), e);
+    	}
+    }
+    
+    /**
+     * delivers the oldest events of the outbox batch by batch
+     * 
+     * @return number of events delivered to every sink
+     */
+    public synchronized int dispatch() {
+    	int delivered = 0;
+    	for (int batches = 0; batches < maxBatchesPerPoll; batches++) {
+    		List<OfferEvent> events = offerEventRepository.findOldest(PageRequest.of(0, batchSize));
+    		if (events.isEmpty()) {
+    			lagMillis.set(0);
+    			break;
+    		}
+    		lagMillis.set(Math.max(0, Duration.between(events.get(0).getCreatedAt(), Instant.now()).toMillis()));
+    		
+    		if (!publish(events)) {
+    			backOff();
+    			break;
+    		}
+    		refusals = 0;
+    		
+    		List<Long> ids = new ArrayList<Long>(events.size());
+    		for (OfferEvent event : events) {
+    			ids.add(event.getId());
+    		}
+    		offerEventRepository.deleteDelivered(ids);
+    		published.addAndGet(events.size());
+    		delivered += events.size();
+    		
+    		if (events.size() < batchSize) {
+    			lagMillis.set(0);
+    			break;
+    		}
+    	}
+    	return delivered;
+    }
+    
+    /**
+     * hands a batch over to every sink
+     * 
+     * @param events	to be delivered
+     * @return true if every sink accepted the batch
+     */
+    private boolean publish(List<OfferEvent> events) {
+    	for (OfferEventSink sink : sinks) {
+    		boolean accepted;
+    		try {
+    			accepted = sink.publish(events);
+    		} catch (RuntimeException e) {
+    			log.warn("publish(): offer event sink failed sink={} error={}", 
+    					sink.getClass().getSimpleName(), e.getMessage());
+    			accepted = false;
+    		}
+    		if (!accepted) {
+    			refused.incrementAndGet();
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+    
+    /**
+     * delays the next poll after a refused batch
+     */
+    private void backOff() {
+    	long delay = Math.min(maxBackoffMillis, backoffMillis << Math.min(refusals, 20));
+    	refusals++;
+    	retryAt = System.currentTimeMillis() + delay;
+    	log.info("backOff(): offer events refused, delivery delayed refusals={} delayMs={}", refusals, delay);
+    }
+
+	/**
+	 * @return number of events delivered since the application started
+	 */
+	public long getPublished() {
+		return published.get();
+	}
+
+	/**
+	 * @return number of batches refused by a sink since the application started
+	 */
+	public long getRefused() {
+		return refused.get();
+	}
+
+	/**
+	 * @return age in milliseconds of the oldest event waiting in the outbox when last polled
+	 */
+	public long getLagMillis() {
+		return lagMillis.get();
+	}
+}
@@ -0,0 +1,26 @@
+package api.service;
+
+import java.util.List;
+
+import api.model.OfferEvent;
+
+/**
+ * Destination of the offer events delivered by the {@link OfferEventDispatcher}
+ * 
+ * <p>
+ * sinks are called by a single thread, with batches in the order the
+ * events were recorded. A batch is only removed from the outbox once 
+ * every sink accepted it, hence a sink may receive a batch again
+ * 
+ * @author Samith Silva
+ *
+ */
+public interface OfferEventSink {
+
+	/**
+	 * @param events	to be delivered, in the order they were recorded
+	 * @return true if the events have been taken over, false if the sink cannot
+	 * take them now, in which case they are offered again later
+	 */
+	boolean publish(List<OfferEvent> events);
+}
@@ -0,0 +1,161 @@
+package api.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import api.model.OfferEventType;
+import api.model.OfferStatus;
+import api.repository.OfferEventRepository;
+import api.repository.OfferRepository;
+
+/**
+ * Background job moving offers past their validity time frame to the expired status
+ * 
+ * <p>
+ * offers are expired in bounded batches of set-based updates keyed on the
+ * precomputed expiresOn date, so that reads never have to write expired
+ * statuses back into the db
+ * 
+ * @author Samith Silva
+ *
+ */
+@Component
+public class OfferExpirySweeper {
+	
+	//statuses from which an offer can move to expired
+	static final Set<OfferStatus> EXPIRABLE_STATUSES = OfferStatus.sourcesOf(OfferStatus.EXPIRED);
+	
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+    
+    @Autowired
+	private OfferRepository offerRepository;
+    
+    @Autowired
+    private OfferCache offerCache;
+    
+    @Autowired
+    private OfferEventRepository offerEventRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    //maximum number of offers expired by a single update statement
+    @Value("${offer.expiry.batch-size:500}")
+    private int batchSize;
+    
+    //metrics of the last sweep and overall
+    private final AtomicLong lastSweepExpired = new AtomicLong();
+    private final AtomicLong lastSweepDurationMillis = new AtomicLong();
+    private final AtomicLong totalExpired = new AtomicLong();
+    private final AtomicLong sweeps = new AtomicLong();
+    
+    /**
+     * scheduled entry point, runs a sweep with the configured cadence
+     */
+    @Scheduled(fixedDelayString = "${offer.expiry.interval-ms:60000}", 
+    		initialDelayString = "${offer.expiry.initial-delay-ms:60000}")
+    public void sweep() {
+    	try {
+    		sweep(LocalDate.now());
+    	} catch (Exception e) {
+    		//the next scheduled sweep will pick up the remaining offers
+			log.error("sweep(): offer expiry sweep failed error={}", e.getMessage(), e);
+    	}
+    }
+    
+    /**
+     * expires every offer whose validity time frame ended before the passed date
+     * 
+     * <p>
+     * each batch is selected and updated in its own short transaction, keeping
+     * row locks on the Offer table bounded by the configured batch size
+     * 
+     * @param today	date against which the offers' expiry date is compared
+     * @return number of offers expired by this sweep
+     */
+    public int sweep(LocalDate today) {
+    	long start = System.nanoTime();
+    	int expired = 0;
+    	List<Long> ids;
+    	
+    	do {
+    		ids = offerRepository.findIdsToExpire(EXPIRABLE_STATUSES, today, PageRequest.of(0, batchSize));
+    		if (ids.isEmpty()) {
+    			break;
+    		}
+    		expired += expireBatch(ids, today);
+    		//cached offers already expire at the end of their validity time frame,
+    		//they are dropped anyway in case the sweep runs on a different clock
+    		for (Long id : ids) {
+    			offerCache.invalidate(id);
+    		}
+    	} while (ids.size() == batchSize);
+    	
+    	long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    	lastSweepExpired.set(expired);
+    	lastSweepDurationMillis.set(duration);
+    	totalExpired.addAndGet(expired);
+    	sweeps.incrementAndGet();
+    	
+    	log.info("sweep(): offers expired count={} durationMs={}", expired, duration);
+    	return expired;
+    }
+
+    /**
+     * expires a batch of offers and records their expired events within a single transaction
+     * 
+     * @param ids	of the offers to be expired
+     * @param today	current date
+     * @return number of offers expired
+     */
+    private int expireBatch(List<Long> ids, LocalDate today) {
+    	return new TransactionTemplate(transactionManager).execute(status -> {
+    		int expired = offerRepository.expireOffers(ids, EXPIRABLE_STATUSES, OfferStatus.EXPIRED, today);
+    		if (expired > 0) {
+    			offerEventRepository.record(ids, OfferEventType.EXPIRED, OfferStatus.EXPIRED);
+    		}
+    		return expired;
+    	});
+    }
+
+	/**
+	 * @return number of offers expired by the last sweep
+	 */
+	public long getLastSweepExpired() {
+		return lastSweepExpired.get();
+	}
+
+	/**
+	 * @return duration of the last sweep in milliseconds
+	 */
+	public long getLastSweepDurationMillis() {
+		return lastSweepDurationMillis.get();
+	}
+
+	/**
+	 * @return number of offers expired since the application started
+	 */
+	public long getTotalExpired() {
+		return totalExpired.get();
+	}
+
+	/**
+	 * @return number of sweeps run since the application started
+	 */
+	public long getSweeps() {
+		return sweeps.get();
+	}
+}
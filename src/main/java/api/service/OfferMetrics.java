@@ -0,0 +1,147 @@
+package api.service;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import api.model.OfferStatus;
+import api.repository.OfferRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * Gauges and counters describing the offers held by the service
+ *
+ * <p>
+ * the number of offers by status and of the offers waiting to be expired
+ * are counted in the db on a fixed cadence and the gauges report the last
+ * counts, hence scraping the metrics never queries the db. The expiry
+ * sweeper, event dispatcher, event broadcaster, summary index and cache 
+ * counters are read from their components on scrape
+ *
+ * @author Samith Silva
+ *
+ */
+@Component
+public class OfferMetrics {
+
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+	private final OfferRepository offerRepository;
+
+	//last counts read from the db
+	private final Map<OfferStatus, AtomicLong> offersByStatus = new EnumMap<OfferStatus, AtomicLong>(OfferStatus.class);
+	private final AtomicLong offersToExpire = new AtomicLong();
+
+	public OfferMetrics(MeterRegistry registry, OfferRepository offerRepository,
+			OfferExpirySweeper offerExpirySweeper, OfferEventDispatcher offerEventDispatcher, 
+			OfferEventBroadcaster offerEventBroadcaster, OfferSummaryIndex offerSummaryIndex, 
+			OfferCache offerCache, ProductCache productCache) {
+		this.offerRepository = offerRepository;
+
+		for (OfferStatus status : OfferStatus.values()) {
+			AtomicLong count = new AtomicLong();
+			offersByStatus.put(status, count);
+			Gauge.builder("offer.offers", count, AtomicLong::get)
+					.description("offers stored with the status")
+					.tag("status", status.getLabel())
+					.register(registry);
+		}
+		Gauge.builder("offer.offers.to.expire", offersToExpire, AtomicLong::get)
+				.description("offers past their validity time frame not expired by the sweeper yet")
+				.register(registry);
+
+		FunctionCounter.builder("offer.expiry.expired", offerExpirySweeper, OfferExpirySweeper::getTotalExpired)
+				.description("offers expired by the sweeper")
+				.register(registry);
+		FunctionCounter.builder("offer.expiry.sweeps", offerExpirySweeper, OfferExpirySweeper::getSweeps)
+				.description("sweeps run by the sweeper")
+				.register(registry);
+		TimeGauge.builder("offer.expiry.last.duration", offerExpirySweeper, TimeUnit.MILLISECONDS,
+				OfferExpirySweeper::getLastSweepDurationMillis)
+				.description("duration of the last sweep")
+				.register(registry);
+
+		FunctionCounter.builder("offer.events.published", offerEventDispatcher, OfferEventDispatcher::getPublished)
+				.description("offer events delivered to every sink")
+				.register(registry);
+		FunctionCounter.builder("offer.events.refused", offerEventDispatcher, OfferEventDispatcher::getRefused)
+				.description("batches of offer events refused by a sink")
+				.register(registry);
+		TimeGauge.builder("offer.events.lag", offerEventDispatcher, TimeUnit.MILLISECONDS,
+				OfferEventDispatcher::getLagMillis)
+				.description("age of the oldest offer event waiting to be delivered when last polled")
+				.register(registry);
+
+		Gauge.builder("offer.stream.subscribers", offerEventBroadcaster, OfferEventBroadcaster::getSubscribers)
+				.description("open offer event streams")
+				.register(registry);
+		FunctionCounter.builder("offer.stream.evicted", offerEventBroadcaster, OfferEventBroadcaster::getEvicted)
+				.description("offer event streams closed for not keeping up")
+				.register(registry);
+
+		Gauge.builder("offer.summary.offers", offerSummaryIndex, OfferSummaryIndex::size)
+				.description("active offers held by the offer summary index")
+				.register(registry);
+
+		registerCache(registry, "offer", offerCache, OfferCache::stats, OfferCache::size);
+		registerCache(registry, "product", productCache, ProductCache::stats, ProductCache::size);
+	}
+
+	/**
+	 * counts the offers by status and the offers waiting to be expired
+	 *
+	 * <p>
+	 * both counts are served by the indexes on the status and expiry date
+	 */
+    @Scheduled(fixedDelayString = "${offer.metrics.refresh-ms:30000}")
+	public void refresh() {
+		try {
+			Map<OfferStatus, Long> counts = new EnumMap<OfferStatus, Long>(OfferStatus.class);
+			for (Object[] row : offerRepository.countByStatus()) {
+				counts.put((OfferStatus) row[0], (Long) row[1]);
+			}
+			for (Map.Entry<OfferStatus, AtomicLong> entry : offersByStatus.entrySet()) {
+				Long count = counts.get(entry.getKey());
+				entry.getValue().set(count == null ? 0 : count);
+			}
+			offersToExpire.set(offerRepository.countToExpire(OfferExpirySweeper.EXPIRABLE_STATUSES, LocalDate.now()));
+		} catch (Exception e) {
+			//gauges keep reporting the last counts until the next refresh
+			log.error("refresh(): offer counts could not be refreshed error={}", e.getMessage(), e);
+		}
+	}
+
+	private static <C> void registerCache(MeterRegistry registry, String name, C cache,
+			Function<C, CacheStats> stats, ToDoubleFunction<C> size) {
+		FunctionCounter.builder("cache.gets", cache, c -> stats.apply(c).hitCount())
+				.description("cache lookups by result")
+				.tags("cache", name, "result", "hit")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", cache, c -> stats.apply(c).missCount())
+				.description("cache lookups by result")
+				.tags("cache", name, "result", "miss")
+				.register(registry);
+		FunctionCounter.builder("cache.evictions", cache, c -> stats.apply(c).evictionCount())
+				.description("entries evicted from the cache")
+				.tag("cache", name)
+				.register(registry);
+		Gauge.builder("cache.size", cache, size)
+				.description("approximate number of entries in the cache")
+				.tag("cache", name)
+				.register(registry);
+	}
+}
@@ -1,59 +1,160 @@
 package api.service;
 
-import java.time.DateTimeException;
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import api.model.Offer;
-import api.model.Product;
+import api.model.OfferCancellation;
+import api.model.OfferBatchResult;
+import api.model.OfferBulkCancelResult;
+import api.model.OfferCreationResult;
+import api.model.OfferEventType;
+import api.model.OfferFilter;
+import api.model.OfferPage;
+import api.model.OfferStatus;
+import api.model.OfferView;
+import api.repository.OfferEventRepository;
 import api.repository.OfferRepository;
-import api.repository.ProductRepository;
-import api.util.Consts;
+import api.util.OfferWriter;
 
 @Service
 public class OfferService {
 	
+	//statuses from which an offer can be cancelled
+	static final Set<OfferStatus> CANCELLABLE_STATUSES = OfferStatus.sourcesOf(OfferStatus.CANCELLED);
+	
     protected final Logger log = LoggerFactory.getLogger(this.getClass());
     
     @Autowired
 	private OfferRepository offerRepository;
     
     @Autowired
-	private ProductRepository productRepository;
+	private ProductCache productCache;
+    
+    @Autowired
+    private OfferCache offerCache;
+    
+    @Autowired
+    private OfferEventRepository offerEventRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    //number of offers saved within a single transaction when creating offers in batch
+    @Value("${offer.batch.chunk-size:500}")
+    private int chunkSize;
+    
+    //maximum number of offers cancelled by a single update statement when cancelling in bulk
+    @Value("${offer.cancel.chunk-size:500}")
+    private int cancelChunkSize;
+    
+    //number of rows fetched from the db at a time when exporting offers, the output is flushed as often
+    @Value("${offer.export.fetch-size:500}")
+    private int exportFetchSize;
     	
 	/**
 	 * creates an offer and saves it into the db
 	 * 
-	 * <p>
-	 * if no ID is returned, it means that the function failed to create a new record
-	 * 
 	 * @param	offer	defines offer to be saved in db
-	 * @return  the generated offer ID
+	 * @return  the outcome of the creation, carrying the generated offer ID on success
 	 */
     @Transactional
-	public long createOffer(Offer offer) {
+	public OfferCreationResult createOffer(Offer offer) {
     	
     	//initialise offers default values
     	offer = intialiseOffer(offer);
     	
-    	offer = checkOfferValidity(offer);
-    	
-    	//checks if product ID is present from returned offer
-    	if(offer.getProductID() == new Offer().getProductID()) {
-    		return new Long(-400);
+    	//checks the currency code and if product ID exists
+    	OfferCreationResult invalid = checkOfferValidity(offer);
+    	if (invalid != null) {
+    		return invalid;
     	}
     	
     	Offer returnedOffer = offerRepository.save(offer);
 		if (returnedOffer == null){
 			log.info("createOffer(): failed to create offer in db");
-			return new Long(-500);
+			return OfferCreationResult.persistenceFailed();
 		}
 		
-		return returnedOffer.getId();
+		recordCreated(Collections.singletonList(returnedOffer.getId()));
+		offerCache.invalidate(returnedOffer.getId());
+		return OfferCreationResult.created(returnedOffer.getId());
+	}
+    
+	/**
+	 * creates a batch of offers and saves them into the db
+	 * 
+	 * <p>
+	 * the product ids of the whole batch missing from the product cache
+	 * are checked with a single query,
+	 * valid offers are then saved in chunks, each within its own transaction
+	 * so that the inserts are sent to the db in JDBC batches. A failure does 
+	 * not abort the batch, each offer gets its own result instead
+	 * 
+	 * @param	offers	defines offers to be saved in db, null entries stand for 
+	 * offers which could not be read and are reported as bad requests
+	 * @param	firstIndex	index given to the result of the first offer of the list
+	 * @return  the result of each offer, in the same order as the passed offers
+	 */
+	public List<OfferBatchResult> createOffers(List<Offer> offers, int firstIndex) {
+		OfferBatchResult[] results = new OfferBatchResult[offers.size()];
+		
+		//check all product ids at once
+		Set<Long> productIDs = new HashSet<Long>();
+		for (Offer offer : offers) {
+			if (offer != null) {
+				productIDs.add(offer.getProductID());
+			}
+		}
+		Set<Long> existingProductIDs = productCache.existing(productIDs);
+		
+		List<Offer> valid = new ArrayList<Offer>(offers.size());
+		List<Integer> validPositions = new ArrayList<Integer>(offers.size());
+		for (int i = 0; i < offers.size(); i++) {
+			Offer offer = offers.get(i);
+			String error = checkBatchOffer(offer, existingProductIDs);
+			if (error != null) {
+				results[i] = OfferBatchResult.badRequest(firstIndex + i, error);
+				continue;
+			}
+			valid.add(checkStatus(intialiseOffer(offer)));
+			validPositions.add(i);
+		}
+		
+		for (int from = 0; from < valid.size(); from += chunkSize) {
+			int to = Math.min(from + chunkSize, valid.size());
+			saveChunk(valid.subList(from, to), validPositions.subList(from, to), firstIndex, results);
+		}
+		
+		List<OfferBatchResult> resultList = new ArrayList<OfferBatchResult>(results.length);
+		for (OfferBatchResult result : results) {
+			resultList.add(result);
+		}
+		return resultList;
 	}
     
 	/**
@@ -62,75 +163,448 @@ public class OfferService {
 	 * <p>
 	 * if no offer is returned, it means that the function failed to find such offer
 	 * 
+	 * <p>
+	 * this is a pure read, the status of the returned offer is the effective status 
+	 * computed in memory, expired statuses are written by the {@link OfferExpirySweeper}.
+	 * Offers are served from the {@link OfferCache}, the db is only read on misses
+	 * 
 	 * @param	id	of the offer to be retrieved
-	 * @return  the retrieved offer
+	 * @return  a read-only view of the retrieved offer, null if not found. 
+	 * The view is shared through the cache
 	 */
-	public Offer getOffer(long id) {
-		Offer off = findOfferByID(id);
-		//check whether returned offer is empty
-		if(off.getId() == new Offer().getId()) {
-			return off;
+	public OfferView getOffer(long id) {
+		return offerCache.get(id, this::loadOffer);
+	}
+	
+	/**
+	 * retrieves an offer along with the product it is based on
+	 * 
+	 * <p>
+	 * offer and product are read by a single query, bypassing the 
+	 * {@link OfferCache} which holds offers without product. Like 
+	 * {@link #getOffer(long)} this is a pure read
+	 * 
+	 * @param	id	of the offer to be retrieved
+	 * @return  the retrieved offer, whose product is loaded, null if not found
+	 */
+    @Transactional(readOnly = true)
+	public Offer getOfferWithProduct(long id) {
+		Offer off = offerRepository.findWithProductById(id).orElse(null);
+		if(off == null) {
+			if (log.isInfoEnabled()) {
+				log.info("getOfferWithProduct(): failed to get offer in db offerId={}", id);
+			}
+			return null;
 		}
-		//check status of the offer by analysing its validity
-		off = checkStatus(off);
-		return off;
+		return checkStatus(off);
+	}
+	
+	/**
+	 * loads the view of an offer from the db and computes its effective status
+	 * 
+	 * <p>
+	 * the view is selected column by column, no entity is hydrated
+	 * 
+	 * @param	id	of the offer to be loaded
+	 * @return  the loaded view, null if not found
+	 */
+	private OfferView loadOffer(long id) {
+		OfferView view = offerRepository.findViewById(id);
+		if(view == null) {
+			if (log.isInfoEnabled()) {
+				log.info("loadOffer(): failed to get offer in db offerId={}", id);
+			}
+			return null;
+		}
+		if (view.getStatus().isTerminal()) {
+			return view;
+		}
+		OfferStatus status = effectiveStatus(view.getId(), view.getStatus(), view.getExpiresOn());
+		return status == view.getStatus() ? view : view.withStatus(status);
+	}
+    
+	/**
+	 * retrieves a page of offers matching the passed filter
+	 * 
+	 * <p>
+	 * offers are paged by id, the page starts after the passed id and the 
+	 * returned page carries the id to pass to retrieve the following one.
+	 * Like {@link #getOffer(long)} this is a pure read, the requested status
+	 * is matched by the db against the effective status of the offers
+	 * 
+	 * @param	filter	criteria the offers must match
+	 * @param	afterId	id after which the page starts
+	 * @param	limit	maximum number of offers in the page
+	 * @return  the page of offers
+	 */
+    @Transactional(readOnly = true)
+	public OfferPage listOffers(OfferFilter filter, long afterId, int limit) {
+		return listOffers(filter, afterId, limit, false);
+	}
+    
+	/**
+	 * retrieves a page of offers matching the passed filter, like 
+	 * {@link #listOffers(OfferFilter, long, int)}, optionally along with 
+	 * the products they are based on
+	 * 
+	 * <p>
+	 * products are read by the same query as the offers, the page costs 
+	 * a single query whatever the number of products it spans
+	 * 
+	 * @param	filter	criteria the offers must match
+	 * @param	afterId	id after which the page starts
+	 * @param	limit	maximum number of offers in the page
+	 * @param	withProduct	true if the products of the offers are to be loaded
+	 * @return  the page of offers
+	 */
+    @Transactional(readOnly = true)
+	public OfferPage listOffers(OfferFilter filter, long afterId, int limit, boolean withProduct) {
+		List<Offer> found = offerRepository.findPage(filter, LocalDate.now(), afterId, limit, withProduct);
+		
+		List<Offer> offers = new ArrayList<Offer>(found.size());
+		for (Offer off : found) {
+			offers.add(checkStatus(off));
+		}
+		
+		//a full page means there might be more offers after the last one found
+		Long nextCursor = found.size() == limit ? found.get(found.size() - 1).getId() : null;
+		return new OfferPage(offers, nextCursor);
+	}
+    
+	/**
+	 * writes every offer matching the passed filter
+	 * 
+	 * <p>
+	 * offers are streamed from the db and written as they are read, the 
+	 * output is flushed after each fetch so that the first offers reach the 
+	 * client while the rest are still being read. Like {@link #listOffers} 
+	 * the requested status is matched against the effective status
+	 * 
+	 * @param	filter	criteria the offers must match
+	 * @param	writer	the offers are written to, flushed but left open
+	 * @return  number of offers written
+	 * @throws IOException if the offers cannot be written, e.g. the client went away
+	 */
+    @Transactional(readOnly = true)
+	public long exportOffers(OfferFilter filter, OfferWriter writer) throws IOException {
+    	long count = 0;
+		try (Stream<Offer> offers = offerRepository.streamAll(filter, LocalDate.now(), exportFetchSize)) {
+			for (Offer off : (Iterable<Offer>) offers::iterator) {
+				writer.write(checkStatus(off));
+				if (++count % exportFetchSize == 0) {
+					writer.flush();
+				}
+			}
+		}
+		writer.flush();
+		return count;
 	}
     
 	/**
 	 * cancels the offer of which id is passed as parameter
 	 * 
 	 * <p>
-	 * this function retrieves the offer from the db, it changes its status
-	 * (if not already cancelled) and saves it back into the db
+	 * the offer is cancelled by a single conditional update, without being 
+	 * loaded. Only when no row is updated the stored status is read to tell 
+	 * a missing offer from an already cancelled or an expired one
+	 * 
+	 * @param	id	of the offer to be cancelled
+	 * @return the outcome of the cancellation
+	 */
+    @Transactional
+	public OfferCancellation cancelOffer(long id) {
+		return cancelOffer(id, null);
+	}
+	
+	/**
+	 * cancels the offer of which id is passed as parameter, provided it is 
+	 * still stored at the passed version
+	 * 
+	 * <p>
+	 * like {@link #cancelOffer(long)}, an offer stored at another version is
+	 * reported as a version mismatch rather than being cancelled
 	 * 
 	 * @param	id	of the offer to be cancelled
-	 * @return true if successful or false if offer wans't found
+	 * @param	version	the offer must be stored with, null to cancel any version
+	 * @return the outcome of the cancellation
 	 */
     @Transactional
-	public boolean cancelOffer(long id) {
-		//check whether offer exists in db
-		Offer off = findOfferByID(id);
-		if(off.getId() == new Offer().getId()) {
-	    	log.info(String.format("cancelOffer(): offer %s could not be cancelled", 
-	    			Long.toString(id)));
-			return false;
+	public OfferCancellation cancelOffer(long id, Long version) {
+		LocalDate today = LocalDate.now();
+		int cancelled = version == null 
+				? offerRepository.cancel(id, CANCELLABLE_STATUSES, OfferStatus.CANCELLED, today)
+				: offerRepository.cancelAtVersion(id, version, CANCELLABLE_STATUSES, OfferStatus.CANCELLED, today);
+		if (cancelled == 1) {
+			offerEventRepository.record(Collections.singletonList(id), OfferEventType.CANCELLED, OfferStatus.CANCELLED);
+			offerCache.invalidate(id);
+			return OfferCancellation.CANCELLED;
 		}
 		
-		//check if offer is already cancelled, if it is, then skip status 
-		//change and save new status in db
-		if(!off.getStatus().equals(Offer.CANCELLED__STATUS_OFFER_STRING)) {
-	    	//if not cancelled then update the offer status, if the update fails, return false
-			off.setStatus(Offer.CANCELLED__STATUS_OFFER_STRING);
-			off = saveOffer(off);
-			//check for errors in saving
-			if (off == null) {
-				return false;
+		OfferStatus status = offerRepository.findStatusById(id);
+		if (status == null) {
+	    	if (log.isInfoEnabled()) {
+	    		log.info("cancelOffer(): offer could not be cancelled offerId={}", id);
+	    	}
+			return OfferCancellation.NOT_FOUND;
+		}
+		if (version != null && !version.equals(offerRepository.findVersionById(id))) {
+			if (log.isInfoEnabled()) {
+				log.info("cancelOffer(): offer has changed since it was read offerId={} version={}", id, version);
 			}
+			return OfferCancellation.VERSION_MISMATCH;
+		}
+		if (status == OfferStatus.CANCELLED) {
+			return OfferCancellation.ALREADY_CANCELLED;
+		}
+		//the offer is either stored as expired or past its validity time frame
+		if (log.isInfoEnabled()) {
+			log.info("cancelOffer(): expired offer cannot be cancelled offerId={} status={}", id, status);
+		}
+		return OfferCancellation.NOT_CANCELLABLE;
+	}
+	
+	/**
+	 * cancels the offers of which ids are passed as parameter
+	 * 
+	 * <p>
+	 * the ids are cancelled in chunks by conditional updates, each within
+	 * its own transaction, hence cancelled chunks stay cancelled if a later 
+	 * one fails. Offers are never loaded, missing, expired and already 
+	 * cancelled offers are left untouched
+	 * 
+	 * @param	ids	of the offers to be cancelled
+	 * @return the number of offers matched and cancelled
+	 */
+	public OfferBulkCancelResult cancelOffers(Collection<Long> ids) {
+		//sorted so that concurrent bulk cancellations lock rows in the same order
+		List<Long> sorted = new ArrayList<Long>(new TreeSet<Long>(ids));
+		LocalDate today = LocalDate.now();
+		
+		int cancelled = 0;
+		int chunks = 0;
+		for (int from = 0; from < sorted.size(); from += cancelChunkSize) {
+			List<Long> chunk = sorted.subList(from, Math.min(from + cancelChunkSize, sorted.size()));
+			cancelled += cancelChunk(chunk, today);
+			chunks++;
+			logCancelProgress(chunks, from + chunk.size(), cancelled);
+		}
+		return new OfferBulkCancelResult(sorted.size(), cancelled, chunks);
+	}
+	
+	/**
+	 * cancels the offers matching the passed filter
+	 * 
+	 * <p>
+	 * the ids of the offers which can still be cancelled are selected chunk 
+	 * by chunk in id order, each chunk is then cancelled like 
+	 * {@link #cancelOffers(Collection)} does. Offers are never loaded
+	 * 
+	 * @param	filter	criteria the offers must match
+	 * @return the number of offers matched and cancelled
+	 */
+	public OfferBulkCancelResult cancelOffers(OfferFilter filter) {
+		LocalDate today = LocalDate.now();
+		
+		int matched = 0;
+		int cancelled = 0;
+		int chunks = 0;
+		long afterId = 0;
+		List<Long> chunk;
+		do {
+			chunk = offerRepository.findCancellableIds(filter, CANCELLABLE_STATUSES, today, afterId, cancelChunkSize);
+			if (chunk.isEmpty()) {
+				break;
+			}
+			matched += chunk.size();
+			cancelled += cancelChunk(chunk, today);
+			chunks++;
+			logCancelProgress(chunks, matched, cancelled);
+			afterId = chunk.get(chunk.size() - 1);
+		} while (chunk.size() == cancelChunkSize);
+		
+		return new OfferBulkCancelResult(matched, cancelled, chunks);
+	}
+	
+	/**
+	 * cancels a chunk of offers with a single conditional update
+	 * 
+	 * <p>
+	 * the offers which can be cancelled are selected and locked first, so that 
+	 * a concurrent cancellation waits for this one and only the offers moved 
+	 * to cancelled by this update get a cancelled event
+	 * 
+	 * @param ids	of the offers to be cancelled
+	 * @param today	current date
+	 * @return number of offers cancelled
+	 */
+	private int cancelChunk(List<Long> ids, LocalDate today) {
+		int cancelled = new TransactionTemplate(transactionManager).execute(status -> {
+			List<Long> cancellable = offerRepository.findCancellableIdsIn(ids, CANCELLABLE_STATUSES, today);
+			if (cancellable.isEmpty()) {
+				return 0;
+			}
+			int updated = offerRepository.cancelAll(cancellable, CANCELLABLE_STATUSES, OfferStatus.CANCELLED, today);
+			offerEventRepository.record(cancellable, OfferEventType.CANCELLED, OfferStatus.CANCELLED);
+			return updated;
+		});
+		if (cancelled > 0) {
+			//ids not cancelled are evicted too, it is cheaper than finding out which rows changed
+			for (Long id : ids) {
+				offerCache.invalidate(id);
+			}
+		}
+		return cancelled;
+	}
+	
+	/**
+	 * logs the progress of a bulk cancellation
+	 * 
+	 * @param chunks	number of chunks processed so far
+	 * @param matched	number of offers processed so far
+	 * @param cancelled	number of offers cancelled so far
+	 */
+	private void logCancelProgress(int chunks, int matched, int cancelled) {
+		if (log.isInfoEnabled()) {
+			log.info("cancelOffers(): chunk cancelled chunk={} matched={} cancelled={}", chunks, matched, cancelled);
 		}
-		return true;
 	}
 	
     
+	/**
+	 * records the created events of newly saved offers, and the validated 
+	 * events of those saved as valid, within the transaction saving them
+	 * 
+	 * @param ids	of the saved offers
+	 */
+	private void recordCreated(List<Long> ids) {
+		offerEventRepository.record(ids, OfferEventType.CREATED);
+		offerEventRepository.record(ids, OfferEventType.VALIDATED, OfferStatus.VALID);
+	}
+	
     /**
      * implements logic to validate an offer
      * 
      * <p>
+     * - checks if the currencyCode of the passed offer is an ISO 4217 currency code
      * - checks if the productID of the passed offer exists in the product table of the db
      * - checks the status of the offer and updates it if needed
      * 
-     * @param offer to be validated
-     * @return the validated offer
+     * @param offer to be validated, its status is updated in place
+     * @return the failed outcome of the creation, null if the offer is valid
      */
-    private Offer checkOfferValidity(Offer offer) {
-    	//check whether product exists in db
-    	Product prod = productRepository.findById(offer.getProductID()).orElse(null);
-    	if(prod == null) {
-			log.info(String.format("createOffer(): the requested product id does not exist", 
-					Long.toString(offer.getProductID())));
-			return new Offer();
+    private OfferCreationResult checkOfferValidity(Offer offer) {
+    	if (!isCurrencyCode(offer.getCurrencyCode())) {
+			if (log.isInfoEnabled()) {
+				log.info("createOffer(): the requested currency code is not valid currencyCode={}", offer.getCurrencyCode());
+			}
+			return OfferCreationResult.currencyInvalid();
+    	}
+    	
+    	//check whether product exists, the db is only queried for products not cached yet
+    	if(!productCache.exists(offer.getProductID())) {
+			if (log.isInfoEnabled()) {
+				log.info("createOffer(): the requested product id does not exist productId={}", offer.getProductID());
+			}
+			return OfferCreationResult.productMissing();
 		}
     	
-    	 return checkStatus(offer);
+    	checkStatus(offer);
+    	return null;
+    }
+    
+    /**
+     * @param code	currency code of an offer
+     * @return true if the code is an ISO 4217 currency code, e.g. EUR
+     */
+    private static boolean isCurrencyCode(String code) {
+    	if (code == null) {
+    		return false;
+    	}
+    	try {
+    		Currency.getInstance(code);
+    		return true;
+    	} catch (IllegalArgumentException e) {
+    		return false;
+    	}
+    }
+    
+    /**
+     * checks an offer received within a batch before it is saved
+     * 
+     * @param offer	to be checked, null if it could not be read
+     * @param existingProductIDs	ids of the products of the batch found in the db
+     * @return reason why the offer is not valid, null if it is valid
+     */
+    private String checkBatchOffer(Offer offer, Set<Long> existingProductIDs) {
+    	if (offer == null) {
+    		return "offer could not be read";
+    	}
+    	if (offer.getDescription() == null || offer.getPrice() == null || offer.getCurrencyCode() == null) {
+    		return "description, price and currencyCode are mandatory";
+    	}
+    	if (!isCurrencyCode(offer.getCurrencyCode())) {
+    		return "currencyCode must be an ISO 4217 currency code";
+    	}
+    	if (!existingProductIDs.contains(offer.getProductID())) {
+    		return "specified productID does not exist in db";
+    	}
+    	return null;
+    }
+    
+    /**
+     * saves a chunk of offers of a batch within a single transaction
+     * 
+     * <p>
+     * in case the chunk fails to be saved, its offers are saved one by one
+     * so that the failure is reported only on the offers that caused it
+     * 
+     * @param chunk	offers to be saved
+     * @param positions	positions of the offers of the chunk in the results
+     * @param firstIndex	index given to the result of the first offer of the batch
+     * @param results	results of the batch, filled in for the offers of the chunk
+     */
+    private void saveChunk(List<Offer> chunk, List<Integer> positions, int firstIndex, OfferBatchResult[] results) {
+    	TransactionTemplate tx = new TransactionTemplate(transactionManager);
+    	try {
+    		tx.execute(status -> {
+    			offerRepository.saveAll(chunk);
+    			//send the inserts now and release the saved offers, a batch can be far 
+    			//larger than what should be held in the persistence context
+    			entityManager.flush();
+    			entityManager.clear();
+    			List<Long> ids = new ArrayList<Long>(chunk.size());
+    			for (Offer offer : chunk) {
+    				ids.add(offer.getId());
+    			}
+    			recordCreated(ids);
+    			return null;
+    		});
+    		for (int i = 0; i < chunk.size(); i++) {
+    			offerCache.invalidate(chunk.get(i).getId());
+    			results[positions.get(i)] = OfferBatchResult.created(firstIndex + positions.get(i), chunk.get(i).getId());
+    		}
+    		return;
+    	} catch (Exception e) {
+    		log.info("saveChunk(): chunk of offers failed to be saved, saving them one by one count={} error={}", 
+    				chunk.size(), e.getMessage());
+    	}
+    	
+    	for (int i = 0; i < chunk.size(); i++) {
+    		Offer offer = chunk.get(i);
+    		int position = positions.get(i);
+    		//the id generated by the failed attempt is discarded so the offer is inserted again
+    		offer.setId(0);
+    		try {
+    			tx.execute(status -> {
+    				recordCreated(Collections.singletonList(offerRepository.save(offer).getId()));
+    				return null;
+    			});
+    			offerCache.invalidate(offer.getId());
+    			results[position] = OfferBatchResult.created(firstIndex + position, offer.getId());
+    		} catch (Exception e) {
+    			results[position] = OfferBatchResult.failed(firstIndex + position, "offer failed to be saved into the db");
+    		}
+    	}
     }
     
     /**
@@ -145,9 +619,9 @@ public class OfferService {
      */
     private Offer intialiseOffer(Offer offer) {
     	//the createdOn date is initialised to the day the request has been done
-		offer.setCreatedOn(LocalDate.now().format(Consts.DATEFORMATTER));
+		offer.setCreatedDate(LocalDate.now());
 		//a newly defined Offer will have undefined status
-		offer.setStatus(Offer.UNDEFINED__STATUS_OFFER_STRING);
+		offer.setStatus(OfferStatus.UNDEFINED);
 		return offer;
 	}
 	
@@ -156,32 +630,24 @@ public class OfferService {
      * implements the logic by which offer's status work
      * 
      * <p>
-     * if a cancelled or expired offer is passed, the function will
-     * return it back straight away, however, if the status is undefined
-     * or valid, it will check the offers validity and initialise the offer
-     * object accordingly
+     * if an offer in a terminal status (cancelled or expired) is passed, 
+     * the function will return it back straight away, however, if the status 
+     * is undefined or valid, it will check the offers validity and initialise 
+     * the offer object accordingly
+     * 
+     * <p>
+     * package visible so that it can be benchmarked on its own
      * 
      * @param offer of which status should be checked
      * @return the offer with validated status
      */
-    private Offer checkStatus(Offer offer) {
+    Offer checkStatus(Offer offer) {
     	
-    	//status check logic
-    	switch(offer.getStatus()) {
-    		//if offer is cancelled or expired return to calling function
-    		case Offer.CANCELLED__STATUS_OFFER_STRING:
-    		case Offer.EXPIRED__STATUS_OFFER_STRING:
-    			return offer;
-    		case Offer.UNDEFINED__STATUS_OFFER_STRING:
-    		case Offer.VALID__STATUS_OFFER_STRING:
-    			offer = checkIfValid(offer);
-    			break;
-    		default:
-    			log.error(String.format("checkStatus(): status %s not recognised", 
-    					offer.getStatus()));
+    	//if offer is cancelled or expired return to calling function
+    	if (offer.getStatus().isTerminal()) {
+    		return offer;
     	}
-    	    	
-    	return offer;
+    	return checkIfValid(offer);
     }
     
     /**
@@ -190,51 +656,44 @@ public class OfferService {
      * <p>
      * this is done by analysing the offer's validity timeframe
      * and in case of expired offer, the function will update the 
-     * offer's status, save the offer into the db and return the
-     * newly saved object back
+     * offer's status in memory only, persisting expired statuses
+     * is left to the {@link OfferExpirySweeper}
      * 
      * @param offer
      * @return offer with correct status
      */
-    private Offer checkIfValid(Offer offer) { 	
-    	try {
-        	LocalDate createdDate = LocalDate.parse(offer.getCreatedOn(), Consts.DATEFORMATTER);
-        	LocalDate currentDate = LocalDate.now();
-        	LocalDate validTimeFrame = createdDate.plusDays(offer.getDaysValidFor());
-        	
-        	//if the offer is outside its validity timeframe, then it is expired
-        	if(currentDate.isAfter(validTimeFrame)) {
-        		offer.setStatus(Offer.EXPIRED__STATUS_OFFER_STRING);
-        		//in case it is expired, the offer is directly saved
-       			offer = saveOffer(offer);
-        		return offer;
-        	}
-        	
-        	//if the offer is undefined and is not expired, then it must be valid
-        	if(offer.getStatus().equals(Offer.UNDEFINED__STATUS_OFFER_STRING)) {
-        		offer.setStatus(Offer.VALID__STATUS_OFFER_STRING);
-        	}
-        	
-    	} catch (DateTimeException e) {
-			log.info(String.format("checkIfValid(): internal error when parsing offer "
-					+ "%s\nstacktrace: %s", Long.toString(offer.getId()), 
-					e.getStackTrace().toString()));	
-    	}
+    private Offer checkIfValid(Offer offer) {
+    	offer.setStatus(effectiveStatus(offer.getId(), offer.getStatus(), offer.getExpiresOn()));
     	return offer;
     }
     
     /**
-     * saves passed offer into db
+     * derives the status of an undefined or valid offer from its validity timeframe
      * 
-     * @param offer to be saved
-     * @return offer just saved in db (contains OfferID)
+     * @param id	of the offer, for logging
+     * @param status	stored status of the offer, neither cancelled nor expired
+     * @param validTimeFrame	last day on which the offer is valid, null if unknown
+     * @return expired if the offer is past its validity timeframe, valid if it is
+     * undefined and within it, the passed status otherwise
      */
-    private Offer saveOffer(Offer offer) {
-		Offer off = offerRepository.save(offer);
-		if (off == null){
-			log.info(String.format("saveOffer(): failed to create offer in db"));
-		}
-		return off;
+    private OfferStatus effectiveStatus(long id, OfferStatus status, LocalDate validTimeFrame) {
+    	if (validTimeFrame == null) {
+			if (log.isInfoEnabled()) {
+				log.info("effectiveStatus(): offer has no creation date offerId={}", id);
+			}
+			return status;
+    	}
+    	
+    	//if the offer is outside its validity timeframe, then it is expired
+    	if(LocalDate.now().isAfter(validTimeFrame)) {
+    		return status.moveTo(OfferStatus.EXPIRED);
+    	}
+    	
+    	//if the offer is undefined and is not expired, then it must be valid
+    	if(status == OfferStatus.UNDEFINED) {
+    		return OfferStatus.VALID;
+    	}
+    	return status;
     }
 	
 	
@@ -242,19 +701,18 @@ public class OfferService {
 	 * function used to retrieve the offers by ID
 	 * 
 	 * <p>
-	 * in case the offer is not found, an empty Offer is passed,
-	 * the calling function must check whether the returned offer
-	 * obj is empty
+	 * in case the offer is not found, null is returned,
+	 * the calling function must check the returned offer
 	 * 
 	 * @param id id of the offer to be retrieved
-	 * @return offer from db on success, empty offer otherwise
+	 * @return offer from db on success, null otherwise
 	 */
 	public Offer findOfferByID(long id) {
-		Offer off = offerRepository.findById(id).orElse(new Offer());
-		//check if 
-		if(off.getId() == new Offer().getId()) {
-			log.info(String.format("findOfferByID(): failed to get offer %s in db", 
-					Long.toString(id)));
+		Offer off = offerRepository.findById(id).orElse(null);
+		if(off == null) {
+			if (log.isInfoEnabled()) {
+				log.info("findOfferByID(): failed to get offer in db offerId={}", id);
+			}
 		}
 		return off;
 	}
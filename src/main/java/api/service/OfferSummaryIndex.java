@@ -0,0 +1,271 @@
+package api.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import api.model.Offer;
+import api.model.OfferEvent;
+import api.model.OfferStatus;
+import api.model.OfferSummary;
+import api.repository.OfferRepository;
+
+/**
+ * In-memory index of the aggregates of the active offers of every product
+ * 
+ * <p>
+ * the index is loaded from the db at start up, before the event dispatcher
+ * starts, and then kept up to date as an {@link OfferEventSink}: offers are 
+ * added when created valid and removed when cancelled or expired. Adding and 
+ * removing an offer is idempotent, events delivered twice leave the index 
+ * unchanged. Each product keeps its offers' prices and expiry dates sorted, 
+ * a change rebuilds the product's summary, which readers get without 
+ * locking nor querying the db. Offers reaching the end of their validity 
+ * before the sweeper expires them are pruned when their product is read
+ * 
+ * <p>
+ * the index only sees the events delivered by the dispatcher of this 
+ * instance, hence it assumes a single instance of the api per db
+ * 
+ * @author Samith Silva
+ *
+ */
+@Component
+public class OfferSummaryIndex implements OfferEventSink {
+	
+	//stored statuses of the offers which are active while within their validity time frame
+	static final Set<OfferStatus> ACTIVE_STATUSES = Collections.unmodifiableSet(
+			EnumSet.of(OfferStatus.UNDEFINED, OfferStatus.VALID));
+	
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+    
+    @Autowired
+	private OfferRepository offerRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final Map<Long, ProductOffers> products = new ConcurrentHashMap<Long, ProductOffers>();
+    
+    /**
+     * loads the active offers of every product
+     */
+    @PostConstruct
+    public void load() {
+    	long start = System.nanoTime();
+    	LocalDate today = LocalDate.now();
+    	TransactionTemplate tx = new TransactionTemplate(transactionManager);
+    	tx.setReadOnly(true);
+    	int loaded = tx.execute(status -> {
+    		int count = 0;
+    		try (Stream<Object[]> rows = offerRepository.streamActive(ACTIVE_STATUSES, today)) {
+    			for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+    				add((Long) row[1], (Long) row[0], (BigDecimal) row[2], (String) row[3], (LocalDate) row[4]);
+    				count++;
+    			}
+    		}
+    		return count;
+    	});
+    	log.info("load(): offer summaries loaded offers={} products={} durationMs={}", 
+    			loaded, products.size(), (System.nanoTime() - start) / 1000000);
+    }
+    
+    /**
+     * @param productID	id of the product on which the offers are based
+     * @param today	current date, offers whose validity time frame ended before it are not active
+     * @return the aggregates of the active offers of the product
+     */
+    public OfferSummary summary(long productID, LocalDate today) {
+    	ProductOffers offers = products.get(productID);
+    	if (offers == null) {
+    		return new OfferSummary(productID, 0, Collections.emptyMap(), null);
+    	}
+    	OfferSummary summary = offers.summary;
+    	if (summary.getNextExpiryDate() != null && summary.getNextExpiryDate().isBefore(today)) {
+    		summary = offers.prune(today);
+    	}
+    	return summary;
+    }
+    
+	@Override
+	public boolean publish(List<OfferEvent> events) {
+		//offers created valid are loaded at once, in the order of their events
+		Set<Long> created = new LinkedHashSet<Long>();
+		for (OfferEvent event : events) {
+			switch (event.getType()) {
+			case CREATED:
+			case VALIDATED:
+				if (ACTIVE_STATUSES.contains(event.getStatus())) {
+					created.add(event.getOfferID());
+				}
+				break;
+			default:
+				remove(event.getProductID(), event.getOfferID());
+			}
+		}
+		if (created.isEmpty()) {
+			return true;
+		}
+		
+		LocalDate today = LocalDate.now();
+		for (Offer offer : offerRepository.findAllById(created)) {
+			//the offer may have changed since its event, its current state is indexed
+			if (ACTIVE_STATUSES.contains(offer.getStatus()) 
+					&& (offer.getExpiresOn() == null || !offer.getExpiresOn().isBefore(today))) {
+				add(offer.getProductID(), offer.getId(), offer.getPrice(), offer.getCurrencyCode(), offer.getExpiresOn());
+			} else {
+				remove(offer.getProductID(), offer.getId());
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return number of active offers in the index
+	 */
+	public long size() {
+		long size = 0;
+		for (ProductOffers offers : products.values()) {
+			size += offers.summary.getActiveOffers();
+		}
+		return size;
+	}
+	
+	private void add(long productID, long offerID, BigDecimal price, String currencyCode, LocalDate expiresOn) {
+		products.computeIfAbsent(productID, ProductOffers::new).add(offerID, price, currencyCode, expiresOn);
+	}
+	
+	private void remove(long productID, long offerID) {
+		ProductOffers offers = products.get(productID);
+		if (offers != null) {
+			offers.remove(offerID);
+		}
+	}
+	
+	/**
+	 * Active offers of a product, sorted by price and expiry date
+	 */
+	private static final class ProductOffers {
+		
+		private final long productID;
+		
+		private final Map<Long, IndexedOffer> offers = new HashMap<Long, IndexedOffer>();
+		
+		//number of offers by price, for each currency
+		private final Map<String, TreeMap<BigDecimal, Integer>> prices = new HashMap<String, TreeMap<BigDecimal, Integer>>();
+		
+		//number of offers by last day of validity
+		private final TreeMap<LocalDate, Integer> expiries = new TreeMap<LocalDate, Integer>();
+		
+		//rebuilt on every change, read without locking
+		private volatile OfferSummary summary;
+		
+		private ProductOffers(long productID) {
+			this.productID = productID;
+			this.summary = new OfferSummary(productID, 0, Collections.emptyMap(), null);
+		}
+		
+		private synchronized void add(long offerID, BigDecimal price, String currencyCode, LocalDate expiresOn) {
+			IndexedOffer offer = new IndexedOffer(price, currencyCode, expiresOn);
+			IndexedOffer previous = offers.put(offerID, offer);
+			if (previous != null) {
+				unindex(previous);
+			}
+			prices.computeIfAbsent(currencyCode, c -> new TreeMap<BigDecimal, Integer>()).merge(price, 1, Integer::sum);
+			if (expiresOn != null) {
+				expiries.merge(expiresOn, 1, Integer::sum);
+			}
+			summarise();
+		}
+		
+		private synchronized void remove(long offerID) {
+			IndexedOffer offer = offers.remove(offerID);
+			if (offer != null) {
+				unindex(offer);
+				summarise();
+			}
+		}
+		
+		/**
+		 * removes the offers whose validity time frame ended before the passed date
+		 * 
+		 * @param today	current date
+		 * @return the summary of the remaining offers
+		 */
+		private synchronized OfferSummary prune(LocalDate today) {
+			if (!expiries.isEmpty() && expiries.firstKey().isBefore(today)) {
+				Iterator<IndexedOffer> it = offers.values().iterator();
+				while (it.hasNext()) {
+					IndexedOffer offer = it.next();
+					if (offer.expiresOn != null && offer.expiresOn.isBefore(today)) {
+						it.remove();
+						unindex(offer);
+					}
+				}
+				summarise();
+			}
+			return summary;
+		}
+		
+		private void unindex(IndexedOffer offer) {
+			TreeMap<BigDecimal, Integer> byPrice = prices.get(offer.currencyCode);
+			decrement(byPrice, offer.price);
+			if (byPrice.isEmpty()) {
+				prices.remove(offer.currencyCode);
+			}
+			if (offer.expiresOn != null) {
+				decrement(expiries, offer.expiresOn);
+			}
+		}
+		
+		private void summarise() {
+			Map<String, OfferSummary.PriceRange> ranges = new HashMap<String, OfferSummary.PriceRange>();
+			for (Map.Entry<String, TreeMap<BigDecimal, Integer>> entry : prices.entrySet()) {
+				ranges.put(entry.getKey(), 
+						new OfferSummary.PriceRange(entry.getValue().firstKey(), entry.getValue().lastKey()));
+			}
+			summary = new OfferSummary(productID, offers.size(), ranges, expiries.isEmpty() ? null : expiries.firstKey());
+		}
+		
+		private static <K> void decrement(TreeMap<K, Integer> counts, K key) {
+			counts.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+		}
+	}
+	
+	/**
+	 * Fields of an active offer aggregated by the summary
+	 */
+	private static final class IndexedOffer {
+		
+		private final BigDecimal price;
+		
+		private final String currencyCode;
+		
+		private final LocalDate expiresOn;
+		
+		private IndexedOffer(BigDecimal price, String currencyCode, LocalDate expiresOn) {
+			this.price = price;
+			this.currencyCode = currencyCode;
+			this.expiresOn = expiresOn;
+		}
+	}
+}
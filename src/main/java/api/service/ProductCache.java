@@ -0,0 +1,122 @@
+package api.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import api.repository.ProductRepository;
+
+/**
+ * Bounded in-memory cache of the ids of the existing products
+ * 
+ * <p>
+ * used to validate offers without querying the product table, only
+ * existing products are cached so that a product saved after a lookup
+ * is never reported as missing. Entries are invalidated when their
+ * product is written and expire after a configurable time as a safety net
+ * 
+ * @author Samith Silva
+ *
+ */
+@Component
+public class ProductCache {
+	
+    protected final Logger log = LoggerFactory.getLogger(this.getClass());
+    
+    @Autowired
+	private ProductRepository productRepository;
+    
+    private final Cache<Long, Boolean> existingProducts;
+    
+    /**
+     * @param maxSize	maximum number of product ids held in memory
+     * @param expireAfterMinutes	minutes after which a cached product id is checked again
+     */
+    public ProductCache(@Value("${product.cache.max-size:100000}") long maxSize,
+    		@Value("${product.cache.expire-after-minutes:60}") long expireAfterMinutes) {
+    	this.existingProducts = Caffeine.newBuilder()
+    			.maximumSize(maxSize)
+    			.expireAfterWrite(expireAfterMinutes, TimeUnit.MINUTES)
+    			.recordStats()
+    			.build();
+    }
+    
+    /**
+     * checks whether a product exists, querying the db only on cache misses
+     * 
+     * @param id	of the product to be checked
+     * @return true if the product exists
+     */
+    public boolean exists(long id) {
+    	if (existingProducts.getIfPresent(id) != null) {
+    		return true;
+    	}
+    	if (!productRepository.existsById(id)) {
+    		return false;
+    	}
+    	existingProducts.put(id, Boolean.TRUE);
+    	return true;
+    }
+    
+    /**
+     * checks which of the passed products exist, 
+     * the products missing from the cache are checked with a single query
+     * 
+     * @param ids	of the products to be checked
+     * @return ids of the existing products
+     */
+    public Set<Long> existing(Collection<Long> ids) {
+    	Set<Long> existing = new HashSet<Long>();
+    	List<Long> unknown = new ArrayList<Long>();
+    	for (Long id : ids) {
+    		if (existingProducts.getIfPresent(id) != null) {
+    			existing.add(id);
+    		} else {
+    			unknown.add(id);
+    		}
+    	}
+    	if (!unknown.isEmpty()) {
+	    	for (Long id : productRepository.findExistingIds(unknown)) {
+	    		existingProducts.put(id, Boolean.TRUE);
+	    		existing.add(id);
+	    	}
+    	}
+    	return existing;
+    }
+    
+    /**
+     * removes a product from the cache, must be called whenever a product is written
+     * 
+     * @param id	of the product to be removed
+     */
+    public void invalidate(long id) {
+    	existingProducts.invalidate(id);
+    }
+    
+    /**
+     * @return hit, miss and eviction counters of the cache
+     */
+    public CacheStats stats() {
+    	return existingProducts.stats();
+    }
+    
+    /**
+     * @return approximate number of product ids held in memory
+     */
+    public long size() {
+    	return existingProducts.estimatedSize();
+    }
+}
@@ -0,0 +1,109 @@
+package api.service;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import api.model.Product;
+
+/**
+ * Invalidates the cached product ids whenever a product is written
+ * 
+ * <p>
+ * registered as a Hibernate event listener so that every product entity
+ * write is caught, whichever repository it goes through. Bulk JPQL or
+ * native updates and deletes bypass the listener and are only covered
+ * by the expiry of the cache entries
+ * 
+ * <p>
+ * within a transaction the product is invalidated once the transaction
+ * completes, so that a concurrent lookup between flush and commit cannot
+ * put the old answer back into the cache
+ * 
+ * @author Samith Silva
+ *
+ */
+@Component
+public class ProductCacheInvalidator implements PostInsertEventListener, PostUpdateEventListener, 
+		PostDeleteEventListener {
+	
+	private static final long serialVersionUID = 1L;
+
+	@Autowired
+	private transient ProductCache productCache;
+	
+	@Autowired
+	private transient EntityManagerFactory entityManagerFactory;
+	
+	/**
+	 * registers the listener on the session factory
+	 */
+	@PostConstruct
+	public void register() {
+		EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+				.getServiceRegistry().getService(EventListenerRegistry.class);
+		registry.appendListeners(EventType.POST_INSERT, this);
+		registry.appendListeners(EventType.POST_UPDATE, this);
+		registry.appendListeners(EventType.POST_DELETE, this);
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		invalidate(event.getEntity());
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		invalidate(event.getEntity());
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		invalidate(event.getEntity());
+	}
+
+	@Override
+	public boolean requiresPostCommitHandling(EntityPersister persister) {
+		return false;
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return requiresPostCommitHandling(persister);
+	}
+	
+	/**
+	 * @param entity	which has just been written
+	 */
+	private void invalidate(Object entity) {
+		if (!(entity instanceof Product)) {
+			return;
+		}
+		long id = ((Product) entity).getId();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					productCache.invalidate(id);
+				}
+			});
+		} else {
+			productCache.invalidate(id);
+		}
+	}
+}
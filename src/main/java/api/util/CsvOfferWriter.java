@@ -0,0 +1,91 @@
+package api.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import api.model.Offer;
+
+/**
+ * Writes offers as CSV (RFC 4180), one offer per line after a header line
+ * 
+ * <p>
+ * fields holding a comma, a double quote or a line break are quoted, 
+ * double quotes within them are doubled. Prices are written in plain 
+ * notation, dates formatted as Consts.TIMEFORMAT and statuses as labels
+ * 
+ * @author Samith Silva
+ *
+ */
+public class CsvOfferWriter implements OfferWriter {
+	
+	public static final String CONTENT_TYPE = "text/csv";
+	
+	static final String HEADER = "id,description,price,currencyCode,createdOn,daysValidFor,status,productID";
+
+	private final Writer writer;
+
+	/**
+	 * writes the header line
+	 * 
+	 * @param out	the offers are written to, left open
+	 * @throws IOException if the header cannot be written
+	 */
+	public CsvOfferWriter(OutputStream out) throws IOException {
+		this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writer.write(HEADER);
+		writer.write("\r\n");
+	}
+
+	@Override
+	public void write(Offer offer) throws IOException {
+		writer.write(Long.toString(offer.getId()));
+		writer.write(',');
+		writeField(offer.getDescription());
+		writer.write(',');
+		writeField(offer.getPrice() == null ? null : offer.getPrice().toPlainString());
+		writer.write(',');
+		writeField(offer.getCurrencyCode());
+		writer.write(',');
+		writeField(offer.getCreatedOn());
+		writer.write(',');
+		writer.write(Integer.toString(offer.getDaysValidFor()));
+		writer.write(',');
+		writeField(offer.getStatus() == null ? null : offer.getStatus().getLabel());
+		writer.write(',');
+		writer.write(Long.toString(offer.getProductID()));
+		writer.write("\r\n");
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+	
+	/**
+	 * writes a text field, quoted if needed
+	 * 
+	 * @param value	of the field, null is written as an empty field
+	 * @throws IOException if the field cannot be written
+	 */
+	private void writeField(String value) throws IOException {
+		if (value == null) {
+			return;
+		}
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write('"');
+	}
+}
@@ -0,0 +1,62 @@
+package api.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed window limiter deciding whether an expensive log line can be written
+ * 
+ * <p>
+ * at most a given number of permits are granted per window, the permits
+ * denied are counted so that their number can be reported once a new
+ * window starts. It holds no per-call state, hence its memory is constant
+ * 
+ * @author Samith Silva
+ *
+ */
+public class LogRateLimiter {
+	
+	private final int permitsPerWindow;
+	
+	private final long windowNanos;
+	
+	private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+	
+	private final AtomicInteger granted = new AtomicInteger();
+	
+	private final AtomicLong denied = new AtomicLong();
+
+	/**
+	 * @param permitsPerWindow	number of permits granted per window
+	 * @param window	length of the window
+	 * @param unit	unit of the window length
+	 */
+	public LogRateLimiter(int permitsPerWindow, long window, TimeUnit unit) {
+		this.permitsPerWindow = permitsPerWindow;
+		this.windowNanos = unit.toNanos(window);
+	}
+	
+	/**
+	 * @return true if the log line can be written
+	 */
+	public boolean tryAcquire() {
+		long now = System.nanoTime();
+		long start = windowStart.get();
+		if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+			granted.set(0);
+		}
+		if (granted.incrementAndGet() <= permitsPerWindow) {
+			return true;
+		}
+		denied.incrementAndGet();
+		return false;
+	}
+	
+	/**
+	 * @return number of permits denied since the last call, resetting the count
+	 */
+	public long drainDenied() {
+		return denied.getAndSet(0);
+	}
+}
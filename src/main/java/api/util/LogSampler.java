@@ -0,0 +1,36 @@
+package api.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a success-path log line is written
+ *
+ * <p>
+ * one call out of the configured rate is sampled on average, the decision
+ * is random so that concurrent requests do not contend on a shared counter.
+ * A rate of 1 samples every call, 0 or less samples none
+ *
+ * @author Samith Silva
+ *
+ */
+public class LogSampler {
+
+	private final int oneIn;
+
+	/**
+	 * @param oneIn	average number of calls per sampled call
+	 */
+	public LogSampler(int oneIn) {
+		this.oneIn = oneIn;
+	}
+
+	/**
+	 * @return true if the log line can be written
+	 */
+	public boolean sample() {
+		if (oneIn <= 1) {
+			return oneIn == 1;
+		}
+		return ThreadLocalRandom.current().nextInt(oneIn) == 0;
+	}
+}
@@ -0,0 +1,49 @@
+package api.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import api.model.Offer;
+
+/**
+ * Writes offers as NDJSON, one json offer per line
+ * 
+ * <p>
+ * offers are written in the same format as returned by the other end
+ * points, through a single json generator reused for every offer
+ * 
+ * @author Samith Silva
+ *
+ */
+public class NdjsonOfferWriter implements OfferWriter {
+	
+	public static final String CONTENT_TYPE = "application/x-ndjson";
+
+	private final JsonGenerator generator;
+
+	/**
+	 * @param out	the offers are written to, left open
+	 * @param objectMapper	used to serialise the offers
+	 * @throws IOException if the generator cannot be created
+	 */
+	public NdjsonOfferWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+		this.generator = objectMapper.getFactory().createGenerator(out);
+		this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		//lines are separated by the writer, not by the generator
+		this.generator.setRootValueSeparator(null);
+	}
+
+	@Override
+	public void write(Offer offer) throws IOException {
+		generator.writeObject(offer);
+		generator.writeRaw('\n');
+	}
+
+	@Override
+	public void flush() throws IOException {
+		generator.flush();
+	}
+}
@@ -0,0 +1,87 @@
+package api.util;
+
+import api.model.OfferView;
+
+/**
+ * Entity tags of offers, used by clients to make conditional requests
+ * 
+ * <p>
+ * the tag of an offer is made of its stored version and of its effective
+ * status, e.g. "3-V", as a valid offer can become expired without being 
+ * written. The tag of an offer converted to another currency also carries 
+ * the currency and the version of the rates, e.g. "3-V-EUR.7". Tags are 
+ * strong, weak tags sent back by clients are compared by their value
+ * 
+ * @author Samith Silva
+ *
+ */
+public final class OfferETags {
+	
+	private OfferETags() {
+		throw new AssertionError();
+	}
+	
+	/**
+	 * @param offer	to be tagged
+	 * @return the entity tag of the offer, quoted
+	 */
+	public static String of(OfferView offer) {
+		return new StringBuilder(24).append('"').append(offer.getVersion()).append('-')
+				.append(offer.getStatus().getCode()).append('"').toString();
+	}
+	
+	/**
+	 * @param offer	to be tagged, as stored
+	 * @param currency	the price of the offer is converted to
+	 * @param ratesVersion	version of the rates the price is converted with
+	 * @return the entity tag of the converted offer, quoted
+	 */
+	public static String of(OfferView offer, String currency, long ratesVersion) {
+		return new StringBuilder(32).append('"').append(offer.getVersion()).append('-')
+				.append(offer.getStatus().getCode()).append('-').append(currency).append('.')
+				.append(ratesVersion).append('"').toString();
+	}
+	
+	/**
+	 * checks an If-None-Match header against the entity tag of an offer
+	 * 
+	 * @param header	value of the If-None-Match header, may be null
+	 * @param etag	entity tag of the offer
+	 * @return true if the header matches the tag, i.e. the client copy is up to date
+	 */
+	public static boolean matches(String header, String etag) {
+		if (header == null) {
+			return false;
+		}
+		for (String tag : header.split(",")) {
+			tag = tag.trim();
+			if (tag.equals("*") || stripWeak(tag).equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * reads the version of the offer out of an If-Match header
+	 * 
+	 * @param header	value of the If-Match header holding a single entity tag
+	 * @return the version of the tag, -1 if the header is not a tag of an offer
+	 */
+	public static long versionOf(String header) {
+		String tag = stripWeak(header.trim());
+		int dash = tag.indexOf('-');
+		if (tag.length() < 2 || tag.charAt(0) != '"' || dash < 2) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(tag.substring(1, dash));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+	
+	private static String stripWeak(String tag) {
+		return tag.startsWith("W/") ? tag.substring(2) : tag;
+	}
+}
@@ -0,0 +1,61 @@
+package api.util;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import api.model.OfferView;
+
+/**
+ * Writes offer views in the same json format as offers
+ *
+ * <p>
+ * fields are written straight to the generator, rather than found and read
+ * through reflection by a bean serializer, and their names are quoted once
+ * for all. Dates are formatted as Consts.TIMEFORMAT and statuses as their label
+ *
+ * @author Samith Silva
+ *
+ */
+public class OfferViewSerializer extends StdSerializer<OfferView> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final SerializedString ID = new SerializedString("id");
+	private static final SerializedString DESCRIPTION = new SerializedString("description");
+	private static final SerializedString PRICE = new SerializedString("price");
+	private static final SerializedString CURRENCY_CODE = new SerializedString("currencyCode");
+	private static final SerializedString CREATED_ON = new SerializedString("createdOn");
+	private static final SerializedString DAYS_VALID_FOR = new SerializedString("daysValidFor");
+	private static final SerializedString PRODUCT_ID = new SerializedString("productID");
+	private static final SerializedString STATUS = new SerializedString("status");
+
+	public OfferViewSerializer() {
+		super(OfferView.class);
+	}
+
+	@Override
+	public void serialize(OfferView offer, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeStartObject(offer);
+		gen.writeFieldName(ID);
+		gen.writeNumber(offer.getId());
+		gen.writeFieldName(DESCRIPTION);
+		gen.writeString(offer.getDescription());
+		gen.writeFieldName(PRICE);
+		gen.writeNumber(offer.getPrice());
+		gen.writeFieldName(CURRENCY_CODE);
+		gen.writeString(offer.getCurrencyCode());
+		gen.writeFieldName(CREATED_ON);
+		gen.writeString(offer.getCreatedDate() == null ? null : offer.getCreatedDate().format(Consts.DATEFORMATTER));
+		gen.writeFieldName(DAYS_VALID_FOR);
+		gen.writeNumber(offer.getDaysValidFor());
+		gen.writeFieldName(PRODUCT_ID);
+		gen.writeNumber(offer.getProductID());
+		gen.writeFieldName(STATUS);
+		gen.writeString(offer.getStatus() == null ? null : offer.getStatus().getLabel());
+		gen.writeEndObject();
+	}
+}
@@ -0,0 +1,25 @@
+package api.util;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+import api.model.Offer;
+
+/**
+ * Writes offers one after the other to an output, used to export offers
+ * 
+ * <p>
+ * writers buffer their output, offers written are only guaranteed to
+ * reach the output once the writer is flushed
+ * 
+ * @author Samith Silva
+ *
+ */
+public interface OfferWriter extends Flushable {
+
+	/**
+	 * @param offer	to be written after the offers already written
+	 * @throws IOException if the output cannot be written
+	 */
+	void write(Offer offer) throws IOException;
+}
@@ -0,0 +1,30 @@
+-- Schema of the offers management api, as mapped by the Offer and Product entities.
+-- Hibernate validates the entities against it on start up (ddl-auto=validate).
+CREATE SEQUENCE IF NOT EXISTS hibernate_sequence START WITH 1 INCREMENT BY 1;
+-- offer ids are allocated 50 at a time, starting past the ids of the seeded offers
+CREATE SEQUENCE IF NOT EXISTS offer_seq START WITH 1000 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS product (
+	id BIGINT NOT NULL,
+	description VARCHAR(255) NOT NULL,
+	name VARCHAR(255) NOT NULL,
+	PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS offer (
+	id BIGINT NOT NULL,
+	created_on DATE NOT NULL,
+	currency_code VARCHAR(255) NOT NULL,
+	days_valid_for INTEGER,
+	description VARCHAR(255) NOT NULL,
+	expires_on DATE,
+	price DECIMAL(19,2) NOT NULL,
+	productid BIGINT NOT NULL,
+	status VARCHAR(1) NOT NULL,
+	version BIGINT NOT NULL,
+	PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_offer_expires_on ON offer (expires_on);
+CREATE INDEX IF NOT EXISTS idx_offer_product_status_id ON offer (productid, status, id);
+CREATE INDEX IF NOT EXISTS idx_offer_status_id ON offer (status, id);
@@ -0,0 +1,13 @@
+-- Products and offers available out of the box.
+-- Rows are merged on their id so that the seed can be applied to a db already holding them.
+MERGE INTO product (id, name, description) KEY (id) VALUES
+	('2147483650', 'desktop', 'HP Precision'),
+	('2147483651', 'laptop', 'Lenovo Carbon'),
+	('2147483652', 'tablet', 'Huawei x31y'),
+	('2147483653', 'smartphone', 'OnePlus 3T'),
+	('2147483654', 'speaker', 'Bose Dolby sorround');
+MERGE INTO offer (id, description, price, currency_code, created_on, days_valid_for, status, productid, expires_on, version) KEY (id) VALUES
+	('100','January Sale', '750','EUR','2019-01-01','30','E','2147483651','2019-01-31','0'),
+	('101','February Sale', '650','GBP','2019-02-01','27','C','2147483651','2019-02-28','0'),
+	('102','March Sale', '650','GBP','2019-03-01','27','V','2147483651','2019-03-28','0'),
+	('103','Summer Sale', '550','GBP','2019-06-01','90','V','2147483651','2019-08-30','0');
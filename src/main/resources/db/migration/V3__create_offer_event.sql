@@ -0,0 +1,12 @@
+-- Outbox of the offer lifecycle events, as mapped by the OfferEvent entity.
+-- Events are inserted in the transaction changing the offer and deleted once
+-- delivered by the OfferEventDispatcher.
+CREATE TABLE IF NOT EXISTS offer_event (
+	id BIGINT AUTO_INCREMENT NOT NULL,
+	offer_id BIGINT NOT NULL,
+	productid BIGINT NOT NULL,
+	type VARCHAR(16) NOT NULL,
+	status VARCHAR(1) NOT NULL,
+	created_at TIMESTAMP NOT NULL,
+	PRIMARY KEY (id)
+);
@@ -0,0 +1,108 @@
+package api;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Acceptance tests of the offer end points running in async execution mode
+ * 
+ * @author Samith Silva
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, classes=Application.class, 
+		properties = "offer.api.execution-mode=async")
+@ActiveProfiles("test")
+public class OfferAsyncRequestTest {
+	
+    @Autowired
+    WebApplicationContext context;
+    
+    @Autowired
+    private OfferRequestExecutor requestExecutor;
+    
+    @Autowired
+    private CorrelationIdFilter correlationIdFilter;
+    
+    private MockMvc mvc;
+    
+    private String offerPageURL = "/offer";
+    
+    //correlation ids in the MDC of every dispatch, as seen past the correlation id filter
+    private List<String> dispatchedIds = new ArrayList<String>();
+    
+    @Before
+    public void initTests() {
+        mvc = MockMvcBuilders.webAppContextSetup(context)
+        		.addFilters(correlationIdFilter, (request, response, chain) -> {
+        			dispatchedIds.add(MDC.get(CorrelationIdFilter.MDC_KEY));
+        			chain.doFilter(request, response);
+        		})
+        		.build();
+    }
+    
+	/**
+	 * requests are handed over to the executor and answered as in blocking mode
+	 * @throws Exception from the mock requests
+	 */
+	@Test
+	public void requestsRunOnExecutor() throws Exception {
+		assertTrue(requestExecutor.isAsync());
+		
+		MvcResult found = mvc.perform(get(offerPageURL + "/102").accept(MediaType.APPLICATION_JSON))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(found))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id", is(102)));
+		
+		//the async dispatch logs under the id generated for the request
+		assertEquals(2, dispatchedIds.size());
+		assertTrue(dispatchedIds.get(0) != null);
+		assertEquals(dispatchedIds.get(0), dispatchedIds.get(1));
+		assertEquals(dispatchedIds.get(0), found.getResponse().getHeader(CorrelationIdFilter.HEADER));
+		
+		MvcResult missing = mvc.perform(get(offerPageURL + "/-5").accept(MediaType.APPLICATION_JSON))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(missing))
+				.andExpect(status().isNotFound());
+		
+		//offer 100 is stored as expired
+		MvcResult expired = mvc.perform(put(offerPageURL + "/cancel/100"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(expired))
+				.andExpect(status().isConflict());
+		
+		//requests rejected before any db work are answered straight away
+		mvc.perform(put(offerPageURL + "/cancel/100").header("If-Match", "\"not a tag\""))
+				.andExpect(request().asyncNotStarted())
+				.andExpect(status().isPreconditionFailed());
+	}
+}
@@ -0,0 +1,129 @@
+package api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import api.model.OfferEvent;
+import api.model.OfferEventType;
+import api.model.OfferStatus;
+import api.service.OfferEventBroadcaster;
+
+/**
+ * Unit tests for the OfferEventBroadcaster class
+ * 
+ * @author Samith Silva
+ *
+ */
+public class OfferEventBroadcasterTest {
+	
+	private static final long STALLED_PRODUCT = 1;
+	
+	private static final long HEALTHY_PRODUCT = 2;
+	
+	//streams handed out to the next subscriptions, in order
+	private final Deque<SseEmitter> emitters = new ArrayDeque<SseEmitter>();
+	
+	//a single sender, whose writes are stuck after 100 milliseconds
+	private final OfferEventBroadcaster broadcaster = new OfferEventBroadcaster(1, 4, 10, 60000, 100) {
+		@Override
+		protected SseEmitter newEmitter(long timeoutMillis) {
+			return emitters.poll();
+		}
+	};
+	
+	private final StalledEmitter stalled = new StalledEmitter();
+	
+	@After
+	public void release() {
+		stalled.release.countDown();
+		broadcaster.shutdown();
+	}
+	
+	/**
+	 * Test method for {@link api.service.OfferEventBroadcaster#checkSenders()}.
+	 * @throws Exception if the thread is interrupted
+	 */
+	@Test
+	public void stalledSubscriberDoesNotHoldTheSenders() throws Exception {
+		RecordingEmitter healthy = new RecordingEmitter();
+		emitters.add(stalled);
+		emitters.add(healthy);
+		broadcaster.subscribe(STALLED_PRODUCT);
+		broadcaster.subscribe(HEALTHY_PRODUCT);
+		
+		//the only sender gets stuck writing to the stalled stream
+		broadcaster.publish(Collections.singletonList(event(1, STALLED_PRODUCT)));
+		assertTrue(stalled.writing.await(5, TimeUnit.SECONDS));
+		broadcaster.publish(Collections.singletonList(event(2, HEALTHY_PRODUCT)));
+		
+		//once past the send timeout the stalled subscriber is evicted and its sender replaced
+		Thread.sleep(200);
+		broadcaster.checkSenders();
+		assertEquals(1, broadcaster.getEvicted());
+		assertEquals(1, broadcaster.getSubscribers());
+		assertNotNull(healthy.sent.poll(5, TimeUnit.SECONDS));
+		
+		//the stalled stream is completed once its write returns
+		stalled.release.countDown();
+		assertTrue(stalled.completed.await(5, TimeUnit.SECONDS));
+	}
+	
+	private static OfferEvent event(long id, long productID) {
+		return new OfferEvent(id, 100, productID, OfferEventType.CREATED, OfferStatus.VALID, Instant.now());
+	}
+	
+	/**
+	 * Stream of a client which stopped reading, every write blocks until released
+	 */
+	private static class StalledEmitter extends SseEmitter {
+		
+		private final CountDownLatch writing = new CountDownLatch(1);
+		
+		private final CountDownLatch release = new CountDownLatch(1);
+		
+		private final CountDownLatch completed = new CountDownLatch(1);
+		
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			writing.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		@Override
+		public synchronized void complete() {
+			completed.countDown();
+		}
+	}
+	
+	/**
+	 * Stream of a client reading every event
+	 */
+	private static class RecordingEmitter extends SseEmitter {
+		
+		private final BlockingQueue<SseEventBuilder> sent = new LinkedBlockingQueue<SseEventBuilder>();
+		
+		@Override
+		public void send(SseEventBuilder builder) {
+			sent.add(builder);
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import api.model.Offer;
+import api.model.OfferCancellation;
+import api.model.OfferEvent;
+import api.model.OfferEventType;
+import api.model.OfferStatus;
+import api.model.Product;
+import api.repository.OfferEventRepository;
+import api.repository.OfferRepository;
+import api.repository.ProductRepository;
+import api.service.OfferEventDispatcher;
+import api.service.OfferEventSink;
+import api.service.OfferExpirySweeper;
+import api.service.OfferService;
+
+/**
+ * Unit tests for the OfferEventDispatcher class
+ * 
+ * <p>
+ * the tests run against their own db, events recorded by other tests 
+ * cannot be delivered by the dispatchers of their application contexts
+ * 
+ * @author Samith Silva
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, classes=Application.class, properties = {
+		"spring.datasource.generate-unique-name=true", "offer.events.initial-delay-ms=3600000"})
+@ActiveProfiles("test")
+@Import(OfferEventDispatcherTest.RecordingSinkConfiguration.class)
+public class OfferEventDispatcherTest {
+	
+	@TestConfiguration
+	static class RecordingSinkConfiguration {
+		@Bean
+		RecordingSink recordingSink() {
+			return new RecordingSink();
+		}
+	}
+	
+	/**
+	 * sink keeping the events it accepts
+	 */
+	static class RecordingSink implements OfferEventSink {
+		
+		volatile boolean accepting = true;
+		
+		final List<OfferEvent> received = new CopyOnWriteArrayList<OfferEvent>();
+
+		@Override
+		public boolean publish(List<OfferEvent> events) {
+			if (!accepting) {
+				return false;
+			}
+			received.addAll(events);
+			return true;
+		}
+	}
+
+    @Autowired
+    private OfferEventDispatcher offerEventDispatcher;
+    
+    @Autowired
+    private RecordingSink recordingSink;
+    
+    @Autowired
+    private OfferService offerService;
+    
+    @Autowired
+    private OfferExpirySweeper offerExpirySweeper;
+    
+    @Autowired
+	private OfferRepository offerRepository;
+    
+    @Autowired
+	private OfferEventRepository offerEventRepository;
+    
+    @Autowired
+	private ProductRepository productRepository;
+    
+	/**
+	 * Test method for {@link api.service.OfferEventDispatcher#dispatch()}.
+	 */
+	@Test
+	public void testDispatch() {
+		//seeded offers past their validity are expired and their events delivered beforehand
+		offerExpirySweeper.sweep(LocalDate.now());
+		offerEventDispatcher.dispatch();
+		recordingSink.received.clear();
+		
+		Product product = productRepository.save(TestObject.mockProduct("offer events"));
+		
+		Offer offer = TestObject.mockOffer("offer events created");
+		offer.setProductID(product.getId());
+		long created = offerService.createOffer(offer).getOfferID();
+		assertEquals(OfferCancellation.CANCELLED, offerService.cancelOffer(created));
+		//cancelling again records no event
+		assertEquals(OfferCancellation.ALREADY_CANCELLED, offerService.cancelOffer(created));
+		
+		Offer expired = TestObject.mockOffer("offer events expired");
+		expired.setCreatedOn("01/01/1980");
+		expired.setStatus(OfferStatus.VALID);
+		expired = offerRepository.save(expired);
+		assertEquals(1, offerExpirySweeper.sweep(LocalDate.now()));
+		
+		//refused events stay in the outbox
+		recordingSink.accepting = false;
+		assertEquals(0, offerEventDispatcher.dispatch());
+		assertEquals(4, offerEventRepository.count());
+		assertTrue(recordingSink.received.isEmpty());
+		
+		recordingSink.accepting = true;
+		assertEquals(4, offerEventDispatcher.dispatch());
+		assertEquals(0, offerEventRepository.count());
+		
+		assertEquals(Arrays.asList(OfferEventType.CREATED, OfferEventType.VALIDATED, OfferEventType.CANCELLED), 
+				typesOf(created));
+		assertEquals(Arrays.asList(OfferEventType.EXPIRED), typesOf(expired.getId()));
+		assertEquals(OfferStatus.CANCELLED, recordingSink.received.get(2).getStatus());
+		assertEquals(product.getId(), recordingSink.received.get(0).getProductID());
+	}
+	
+	private List<OfferEventType> typesOf(long offerID) {
+		List<OfferEventType> types = new ArrayList<OfferEventType>();
+		for (OfferEvent event : recordingSink.received) {
+			if (event.getOfferID() == offerID) {
+				types.add(event.getType());
+			}
+		}
+		return types;
+	}
+}
@@ -0,0 +1,84 @@
+package api;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import api.service.OfferService;
+
+/**
+ * Unit tests for the OfferExceptionHandler class
+ * 
+ * @author Samith Silva
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, classes=Application.class)
+@ActiveProfiles("test")
+public class OfferExceptionHandlerTest {
+	
+    @Autowired
+    WebApplicationContext context;
+    
+    @Autowired
+    private OfferExceptionHandler offerExceptionHandler;
+    
+    @MockBean
+    private OfferService offerService;
+    
+    private MockMvc mvc;
+    
+    @Before
+    public void initTests() {
+        mvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+	/**
+	 * failures thrown by an end point are mapped to a 500 and counted by end point and type
+	 * @throws Exception from the mock request
+	 */
+	@Test
+	public void testHandleUnexpected() throws Exception {
+		when(offerService.getOffer(anyLong())).thenThrow(new IllegalStateException("db unavailable"));
+		
+		for (int i = 0; i < 3; i++) {
+	        mvc.perform(get("/offer/1").accept(MediaType.APPLICATION_JSON))
+	                .andExpect(status().isInternalServerError())
+	                .andExpect(jsonPath("$['error:']").exists());
+		}
+		
+		assertEquals(Long.valueOf(3), 
+				offerExceptionHandler.getErrorCounts().get("getOfferHandler:IllegalStateException"));
+	}
+	
+	/**
+	 * standard Spring MVC failures keep their status
+	 * @throws Exception from the mock request
+	 */
+	@Test
+	public void testHandleUnreadableBody() throws Exception {
+        mvc.perform(post("/offer")
+        		.content("{not an offer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+	}
+}
@@ -0,0 +1,78 @@
+package api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import api.model.Offer;
+import api.model.OfferStatus;
+import api.repository.OfferRepository;
+import api.service.OfferExpirySweeper;
+import api.service.OfferService;
+
+/**
+ * Unit tests for the OfferExpirySweeper class
+ * 
+ * @author Samith Silva
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, classes=Application.class)
+@ActiveProfiles("test")
+public class OfferExpirySweeperTest {
+
+    @Autowired
+    private OfferExpirySweeper offerExpirySweeper;
+    
+    @Autowired
+    private OfferService offerService;
+    
+    @Autowired
+	private OfferRepository offerRepository;
+    
+	/**
+	 * Test method for {@link api.service.OfferExpirySweeper#sweep(LocalDate)}.
+	 */
+	@Test
+	public void testSweep() {
+		//save offer that is valid in db but expired
+		Offer expiredOffer = TestObject.mockOffer("valid in db but expired offer sweeping");
+		expiredOffer.setCreatedOn("01/01/1980");
+		expiredOffer.setStatus(OfferStatus.VALID);
+		expiredOffer = offerRepository.save(expiredOffer);
+		
+		//save offer that has been cancelled before expiring
+		Offer cancelledOffer = TestObject.mockOffer("cancelled and expired offer sweeping");
+		cancelledOffer.setCreatedOn("01/01/1980");
+		cancelledOffer.setStatus(OfferStatus.CANCELLED);
+		cancelledOffer = offerRepository.save(cancelledOffer);
+		
+		//save offer that is still valid
+		Offer validOffer = TestObject.mockOffer("valid offer sweeping");
+		validOffer.setStatus(OfferStatus.VALID);
+		validOffer = offerRepository.save(validOffer);
+		
+		//retrieving the expired offer must not write its status back
+		assertEquals(OfferStatus.EXPIRED, offerService.getOffer(expiredOffer.getId()).getStatus());
+		assertEquals(OfferStatus.VALID, 
+				offerRepository.findById(expiredOffer.getId()).get().getStatus());
+		
+		assertTrue(offerExpirySweeper.sweep(LocalDate.now()) >= 1);
+		
+		assertEquals(OfferStatus.EXPIRED, 
+				offerRepository.findById(expiredOffer.getId()).get().getStatus());
+		assertEquals(OfferStatus.CANCELLED, 
+				offerRepository.findById(cancelledOffer.getId()).get().getStatus());
+		assertEquals(OfferStatus.VALID, 
+				offerRepository.findById(validOffer.getId()).get().getStatus());
+	}
+}
@@ -0,0 +1,79 @@
+package api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import api.model.Offer;
+import api.model.OfferStatus;
+import api.repository.OfferRepository;
+import api.service.OfferMetrics;
+
+/**
+ * Tests of the metrics exposed through the prometheus scrape end point
+ *
+ * @author Samith Silva
+ *
+ */
+@RunWith(SpringRunner.class)
+//every statement is slow so that the slow query counter moves
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, classes=Application.class, 
+		properties = {"offer.db.slow-query-ms=0", "offer.db.slow-query-logs-per-minute=1"})
+@ActiveProfiles("test")
+public class OfferMetricsTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private OfferMetrics offerMetrics;
+
+    @Autowired
+	private OfferRepository offerRepository;
+
+	/**
+	 * end point, repository, offer count, connection pool and slow query metrics 
+	 * are scraped after an offer is retrieved
+	 */
+	@Test
+	public void testScrape() {
+		Offer validOffer = TestObject.mockOffer("valid offer scraping");
+		validOffer.setStatus(OfferStatus.VALID);
+		validOffer = offerRepository.save(validOffer);
+
+		assertEquals(HttpStatus.OK,
+				restTemplate.getForEntity("/offer/" + validOffer.getId(), String.class).getStatusCode());
+		offerMetrics.refresh();
+
+		String scrape = restTemplate.getForObject("/actuator/prometheus", String.class);
+		assertContains(scrape, "http_server_requests_seconds_count\\{[^}]*handler=\"getOfferHandler\"[^}]*status=\"200\"");
+		assertContains(scrape, "http_server_requests_seconds_bucket\\{[^}]*handler=\"getOfferHandler\"");
+		assertContains(scrape, "offer_repository_seconds_count\\{exception=\"none\",method=\"findViewById\",repository=\"OfferRepository\",\\}");
+		assertContains(scrape, "offer_offers\\{status=\"valid\",\\} [1-9]");
+		assertContains(scrape, "offer_offers_to_expire ");
+		assertContains(scrape, "cache_gets_total\\{cache=\"offer\",result=\"miss\",\\} [1-9]");
+		assertContains(scrape, "hikaricp_connections_active\\{");
+		assertContains(scrape, "hikaricp_connections_idle\\{");
+		assertContains(scrape, "hikaricp_connections_acquire_seconds_count\\{[^}]*\\} [1-9]");
+		assertContains(scrape, "offer_db_slow_queries_total [1-9]");
+		assertContains(scrape, "offer_startup_duration_seconds [0-9.]+");
+		assertContains(scrape, "offer_events_published_total ");
+		assertContains(scrape, "offer_events_lag_seconds ");
+		assertContains(scrape, "offer_stream_subscribers ");
+	}
+
+	private static void assertContains(String scrape, String regex) {
+		assertTrue(String.format("%s not found in scrape", regex), Pattern.compile(regex).matcher(scrape).find());
+	}
+}
@@ -1,13 +1,28 @@
 package api;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -19,6 +34,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -36,8 +52,13 @@ import com.jayway.jsonpath.JsonPath;
 import api.Application;
 import api.OfferController;
 import api.model.Offer;
+import api.model.OfferEvent;
+import api.model.OfferEventType;
+import api.model.OfferStatus;
 import api.model.Product;
+import api.repository.OfferRepository;
 import api.repository.ProductRepository;
+import api.service.OfferEventBroadcaster;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 
@@ -60,6 +81,18 @@ public class OfferRequestTest {
     @Autowired
 	private ProductRepository productRepository;
     
+    @Autowired
+	private OfferRepository offerRepository;
+    
+    @Autowired
+    private CorrelationIdFilter correlationIdFilter;
+    
+    @Autowired
+    private OfferEventBroadcaster offerEventBroadcaster;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     private MockMvc mvc;
     
     private String offerPageURL = "/offer";
@@ -91,7 +124,7 @@ public class OfferRequestTest {
 	        offer.setId(createOfferAndReturnID(offer));
 	        
 	        //the expected offer should now be Cancelled, hence set offer to cancelled and check the response
-	        offer.setStatus(Offer.VALID__STATUS_OFFER_STRING);
+	        offer.setStatus(OfferStatus.VALID);
 	        //query the just created offer and validate its content
 	        retrieveAndValidateOffer(offer);
 	        
@@ -99,7 +132,7 @@ public class OfferRequestTest {
 	        cancelOffer(offer.getId());
 	        
 	        //the expected offer should now be Cancelled, hence set offer to cancelled and check the response
-	        offer.setStatus(Offer.CANCELLED__STATUS_OFFER_STRING);
+	        offer.setStatus(OfferStatus.CANCELLED);
 	        //query the just updated offer, validate its content and check that it has been cancelled
 	        retrieveAndValidateOffer(offer);
         
@@ -109,6 +142,376 @@ public class OfferRequestTest {
     	}
     }
     
+    /**
+     * acceptance test to validate the listing of offers page by page
+     * @throws Exception from json conversion
+     */
+    @Test
+    @Transactional
+    public void listOffersByProductInPages() throws Exception {
+    	//set up three valid offers on a product with no other offers
+    	long productID = 987654321L;
+    	long[] ids = new long[3];
+    	for (int i = 0; i < ids.length; i++) {
+	        Offer offer = TestObject.mockOffer("listOffersByProductInPages");
+	        offer.setProductID(productID);
+	        offer.setStatus(OfferStatus.VALID);
+	        ids[i] = offerRepository.save(offer).getId();
+    	}
+    	
+    	//first page holds the first two offers and points to the second one
+        mvc.perform(get(offerPageURL + "?productID=" + productID + "&status=valid&limit=2")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offers", hasSize(2)))
+                .andExpect(jsonPath("$.offers[0].id", is(Math.toIntExact(ids[0]))))
+                .andExpect(jsonPath("$.offers[1].id", is(Math.toIntExact(ids[1]))))
+                .andExpect(jsonPath("$.nextCursor", is(Math.toIntExact(ids[1]))));
+        
+        //last page holds the remaining offer and no cursor
+        mvc.perform(get(offerPageURL + "?productID=" + productID + "&status=valid&limit=2&after=" + ids[1])
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offers", hasSize(1)))
+                .andExpect(jsonPath("$.offers[0].id", is(Math.toIntExact(ids[2]))))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+        
+        //unknown statuses are rejected
+        mvc.perform(get(offerPageURL + "?status=unknown")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        
+        //an offer past its time frame is listed as expired before being swept
+        Offer expired = TestObject.mockOffer("listOffersByProductInPages");
+        expired.setProductID(productID);
+        expired.setStatus(OfferStatus.VALID);
+        expired.setCreatedDate(LocalDate.now().minusDays(30));
+        long expiredId = offerRepository.save(expired).getId();
+        mvc.perform(get(offerPageURL + "?productID=" + productID + "&status=expired&limit=1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offers", hasSize(1)))
+                .andExpect(jsonPath("$.offers[0].id", is(Math.toIntExact(expiredId))))
+                .andExpect(jsonPath("$.offers[0].status", is("expired")));
+        mvc.perform(get(offerPageURL + "?productID=" + productID + "&status=valid")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offers", hasSize(3)));
+    }
+    
+    /**
+     * acceptance test to validate the creation of offers streamed as NDJSON
+     * @throws Exception from json conversion
+     */
+    @Test
+    @Transactional
+    public void createOffersFromStream() throws Exception {
+		Product validProduct = TestObject.mockProduct("createOffersFromStream");
+		validProduct = productRepository.save(validProduct);
+		
+        Offer offer = TestObject.mockOffer("createOffersFromStream");
+        offer.setProductID(validProduct.getId());
+        String line = new String(toJson(offer));
+        
+        //a valid offer, an unreadable line and another valid offer
+        String[] results = mvc.perform(post(offerPageURL + "/batch")
+                .content(line + "\n{not an offer\n" + line + "\n")
+                .contentType("application/x-ndjson")
+                .accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(3, results.length);
+        assertEquals(201, (int) JsonPath.read(results[0], "$.status"));
+        assertEquals(1, (int) JsonPath.read(results[1], "$.index"));
+        assertEquals(400, (int) JsonPath.read(results[1], "$.status"));
+        assertEquals(201, (int) JsonPath.read(results[2], "$.status"));
+    }
+    
+    /**
+     * acceptance test to validate the cancellation of offers in bulk
+     * @throws Exception from json conversion
+     */
+    @Test
+    @Transactional
+    public void cancelOffersInBulk() throws Exception {
+    	//set up two valid offers and an expired one on a product with no other offers
+    	long productID = 987654322L;
+    	long[] ids = new long[3];
+    	for (int i = 0; i < ids.length; i++) {
+	        Offer offer = TestObject.mockOffer("cancelOffersInBulk");
+	        offer.setProductID(productID);
+	        offer.setStatus(i < 2 ? OfferStatus.VALID : OfferStatus.EXPIRED);
+	        ids[i] = offerRepository.save(offer).getId();
+    	}
+    	
+    	//only the valid offers of the product are matched and cancelled
+        mvc.perform(post(offerPageURL + "/cancel")
+                .content("{\"productID\":" + productID + "}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matched", is(2)))
+                .andExpect(jsonPath("$.cancelled", is(2)))
+                .andExpect(jsonPath("$.chunks", is(1)));
+        
+        //cancelled, expired and missing offers are matched but left untouched
+        mvc.perform(post(offerPageURL + "/cancel")
+                .content("{\"ids\":[" + ids[0] + "," + ids[2] + ",-5]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matched", is(3)))
+                .andExpect(jsonPath("$.cancelled", is(0)));
+        assertEquals(OfferStatus.CANCELLED, offerRepository.findStatusById(ids[1]));
+        assertEquals(OfferStatus.EXPIRED, offerRepository.findStatusById(ids[2]));
+        
+        //ids and filter cannot be combined
+        mvc.perform(post(offerPageURL + "/cancel")
+                .content("{\"ids\":[" + ids[0] + "],\"productID\":" + productID + "}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+    
+    /**
+     * acceptance test to validate conditional requests based on the offer ETag
+     * @throws Exception from json conversion
+     */
+    @Test
+    @Transactional
+    public void conditionalRequestsUseETag() throws Exception {
+        Offer offer = TestObject.mockOffer("conditionalRequestsUseETag");
+        offer.setStatus(OfferStatus.VALID);
+        long id = offerRepository.save(offer).getId();
+        
+        String etag = mvc.perform(get(offerPageURL + "/" + id).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        
+        //an up to date copy is not sent again
+        mvc.perform(get(offerPageURL + "/" + id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        
+        //a stale copy cannot be used to cancel the offer
+        mvc.perform(put(offerPageURL + "/cancel/" + id).header(HttpHeaders.IF_MATCH, "\"99-V\""))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(put(offerPageURL + "/cancel/" + id).header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isNoContent());
+        mvc.perform(put(offerPageURL + "/cancel/" + id).header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isPreconditionFailed());
+        
+        //the cancelled offer has a new tag
+        mvc.perform(get(offerPageURL + "/" + id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+    
+    /**
+     * acceptance test to validate that prices are converted to the requested currency
+     * @throws Exception from the request
+     */
+    @Test
+    public void pricesAreConvertedToRequestedCurrency() throws Exception {
+    	//650 GBP at 0.86 GBP per EUR, rounded half even to cents
+        String etag = mvc.perform(get(offerPageURL + "/102").param("currency", "EUR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price", is(755.81)))
+                .andExpect(jsonPath("$.currencyCode", is("EUR")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        
+        //the converted offer is tagged apart from the stored one
+        mvc.perform(get(offerPageURL + "/102").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price", is(650.0)))
+                .andExpect(jsonPath("$.currencyCode", is("GBP")));
+        mvc.perform(get(offerPageURL + "/102").param("currency", "EUR").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        
+        //yen have no fraction digits
+        mvc.perform(get(offerPageURL).param("productID", "2147483651").param("currencyCode", "EUR")
+        		.param("currency", "JPY"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offers[0].id", is(100)))
+                .andExpect(jsonPath("$.offers[0].price", is(120375)))
+                .andExpect(jsonPath("$.offers[0].currencyCode", is("JPY")));
+        
+        mvc.perform(get(offerPageURL + "/102").param("currency", "XYZ"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get(offerPageURL).param("currency", "XYZ"))
+                .andExpect(status().isBadRequest());
+        
+        //offers priced in a currency missing from the rates are not returned unconverted
+        Offer offer = TestObject.mockOffer("pricesAreConvertedToRequestedCurrency");
+        offer.setProductID(987654323L);
+        offer.setCurrencyCode("NZD");
+        long id = offerRepository.save(offer).getId();
+        mvc.perform(get(offerPageURL + "/" + id).param("currency", "EUR"))
+                .andExpect(status().isUnprocessableEntity());
+        mvc.perform(get(offerPageURL).param("productID", "987654323").param("currency", "EUR"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+    
+    /**
+     * acceptance test to validate that offer views are serialised in the same format as offers
+     * @throws Exception from the serialisation
+     */
+    @Test
+    public void offerViewIsSerialisedAsOffer() throws Exception {
+        Offer offer = TestObject.mockOffer("offerViewIsSerialisedAsOffer");
+        offer.setStatus(OfferStatus.VALID);
+        long id = offerRepository.save(offer).getId();
+        
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(offerRepository.findById(id).get())),
+        		objectMapper.readTree(objectMapper.writeValueAsString(offerRepository.findViewById(id))));
+        
+        mvc.perform(get(offerPageURL + "/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is((int) id)))
+                .andExpect(jsonPath("$.description", is("offerViewIsSerialisedAsOffer")))
+                .andExpect(jsonPath("$.createdOn", is(offer.getCreatedOn())))
+                .andExpect(jsonPath("$.status", is(OfferStatus.VALID.getLabel())));
+    }
+    
+    /**
+     * acceptance test to validate that offers are returned along with their product when expanded
+     * @throws Exception from the request
+     */
+    @Test
+    public void offersAreExpandedWithProduct() throws Exception {
+        mvc.perform(get(offerPageURL + "/102").param("expand", "product"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.productID", is(2147483651L)))
+                .andExpect(jsonPath("$.product.name", is("laptop")))
+                .andExpect(jsonPath("$.product.description", is("Lenovo Carbon")));
+        
+        //the lazy product is left out unless expanded
+        mvc.perform(get(offerPageURL + "/102"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.product").doesNotExist());
+        
+        mvc.perform(get(offerPageURL).param("productID", "2147483651").param("expand", "product")
+        		.param("currency", "EUR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offers[0].id", is(100)))
+                .andExpect(jsonPath("$.offers[0].product.name", is("laptop")))
+                .andExpect(jsonPath("$.offers[3].product.name", is("laptop")));
+        mvc.perform(get(offerPageURL).param("productID", "2147483651"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offers[0].product").doesNotExist());
+        
+        mvc.perform(get(offerPageURL + "/102").param("expand", "seller"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get(offerPageURL).param("expand", "seller"))
+                .andExpect(status().isBadRequest());
+    }
+    
+    /**
+     * acceptance test to validate that offers are exported as NDJSON and CSV
+     * @throws Exception from the request
+     */
+    @Test
+    public void offersAreExported() throws Exception {
+        Offer offer = TestObject.mockOffer("offersAreExported");
+        offer.setDescription("Sale, \"best\" price");
+        offer.setProductID(2147483652L);
+        offer.setStatus(OfferStatus.VALID);
+        long id = offerRepository.save(offer).getId();
+        
+        MvcResult csv = mvc.perform(get(offerPageURL + "/export").param("format", "csv")
+        		.param("productID", "2147483652"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, startsWith("text/csv")))
+                .andExpect(content().string(startsWith("id,description,price,currencyCode,")))
+                .andExpect(content().string(containsString(id + ",\"Sale, \"\"best\"\" price\",")));
+        
+        //stored statuses are exported as effective statuses, offer 102 is past its validity
+        MvcResult ndjson = mvc.perform(get(offerPageURL + "/export").param("productID", "2147483651"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String[] lines = mvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(4, lines.length);
+        assertEquals(102, (int) JsonPath.read(lines[2], "$.id"));
+        assertEquals("expired", JsonPath.read(lines[2], "$.status"));
+        
+        mvc.perform(get(offerPageURL + "/export").param("format", "xml"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest());
+    }
+    
+    /**
+     * acceptance test to validate that offer events are pushed to the subscribers of their product
+     * @throws Exception from the request
+     */
+    @Test
+    public void offerEventsAreStreamed() throws Exception {
+        MvcResult stream = mvc.perform(get(offerPageURL + "/stream").param("productID", "2147483653")
+        		.accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        
+        offerEventBroadcaster.publish(Arrays.asList(
+        		new OfferEvent(900001, 103, 2147483651L, OfferEventType.CANCELLED, OfferStatus.CANCELLED, Instant.now()),
+        		new OfferEvent(900002, 555, 2147483653L, OfferEventType.CREATED, OfferStatus.VALID, Instant.now())));
+        
+        //events are written by the broadcaster's sender threads
+        String content = "";
+        for (int i = 0; i < 50 && !content.contains("event:created"); i++) {
+        	Thread.sleep(100);
+        	content = stream.getResponse().getContentAsString();
+        }
+        assertThat(content, containsString("id:900002\nevent:created\ndata:{"));
+        assertThat(content, containsString("\"offerID\":555"));
+        assertThat(content, not(containsString("900001")));
+        
+        mvc.perform(get(offerPageURL + "/stream").param("productID", "-1").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest());
+    }
+    
+    /**
+     * acceptance test to validate that the offers of a product are summarised
+     * @throws Exception from the request
+     */
+    @Test
+    public void offersAreSummarised() throws Exception {
+    	//the seeded offers of the product are all past their validity
+        mvc.perform(get(offerPageURL + "/summary").param("productID", "2147483651"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.productID", is(2147483651L)))
+                .andExpect(jsonPath("$.activeOffers", is(0)))
+                .andExpect(jsonPath("$.nextExpiry", nullValue()));
+        
+        mvc.perform(get(offerPageURL + "/summary").param("productID", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+    
+    /**
+     * acceptance test to validate that requests carry a correlation id
+     * @throws Exception from the request
+     */
+    @Test
+    public void correlationIdIsSentBack() throws Exception {
+    	MockMvc filteredMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(correlationIdFilter).build();
+    	
+    	//a valid id passed by the client is sent back as is
+    	filteredMvc.perform(get(offerPageURL + "/102").header(CorrelationIdFilter.HEADER, "client-id-1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CorrelationIdFilter.HEADER, "client-id-1"));
+    	
+    	//a malformed id is replaced by a generated one
+    	filteredMvc.perform(get(offerPageURL + "/102").header(CorrelationIdFilter.HEADER, "bad\nid"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CorrelationIdFilter.HEADER, not(containsString("bad"))));
+    }
+    
 	/**
 	 * Creates an offer using the passed offer object and returns its offer ID
 	 * <p>
@@ -151,11 +554,13 @@ public class OfferRequestTest {
                 .andExpect(jsonPath("$.id", is(Math.toIntExact(expectedOffer.getId()))))
                 .andExpect(jsonPath("$.productID", is(Math.toIntExact(expectedOffer.getProductID()))))
                 .andExpect(jsonPath("$.description", is(expectedOffer.getDescription())))
-                .andExpect(jsonPath("$.price", is((expectedOffer.getPrice().intValueExact()))))
+                //the price is compared by value as offers read back from the db carry the column's scale
+                .andExpect(result -> assertEquals(0, expectedOffer.getPrice().compareTo(
+                		new BigDecimal(JsonPath.read(result.getResponse().getContentAsString(), "$.price").toString()))))
                 .andExpect(jsonPath("$.currencyCode", is(expectedOffer.getCurrencyCode())))
 		        .andExpect(jsonPath("$.createdOn", is(expectedOffer.getCreatedOn())))
 		        .andExpect(jsonPath("$.daysValidFor", is(expectedOffer.getDaysValidFor())))
-		        .andExpect(jsonPath("$.status", is(expectedOffer.getStatus())));
+		        .andExpect(jsonPath("$.status", is(expectedOffer.getStatus().getLabel())));
     }
     
 	/**
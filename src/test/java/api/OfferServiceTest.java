@@ -6,7 +6,9 @@ package api;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Test;
@@ -21,9 +23,15 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import api.model.Offer;
+import api.model.OfferCancellation;
+import api.model.OfferStatus;
+import api.model.OfferView;
+import api.model.OfferBatchResult;
+import api.model.OfferCreationResult;
 import api.model.Product;
 import api.repository.OfferRepository;
 import api.repository.ProductRepository;
+import api.service.OfferCache;
 import api.service.OfferService;
 
 /**
@@ -46,6 +54,9 @@ public class OfferServiceTest {
     @Autowired
 	private ProductRepository productRepository;
     
+    @Autowired
+	private OfferCache offerCache;
+    
     protected final Logger log = LoggerFactory.getLogger(this.getClass());
     
 	private Map<String, Object> testcase = new HashMap<String, Object>();
@@ -66,24 +77,69 @@ public class OfferServiceTest {
 		//successful scenario - valid productID
 		Offer off = TestObject.mockOffer("successfull offer creation");
 		off.setProductID(validProduct.getId());
-		testcasesList = addTestcase(testcasesList, "successful offer creation - valid productID", off, 1);
+		testcasesList = addTestcase(testcasesList, "successful offer creation - valid productID", off, OfferCreationResult.Outcome.CREATED);
 
 		//unsuccessful scenario - wrong productID
 		off = TestObject.mockOffer("unsuccessful scenario - wrong productID");
 		off.setProductID(1111111111L);
-		testcasesList = addTestcase(testcasesList, "unsuccessful offer creation - wrong productID", off, -400L);
+		testcasesList = addTestcase(testcasesList, "unsuccessful offer creation - wrong productID", off, OfferCreationResult.Outcome.PRODUCT_MISSING);
+		
+		//unsuccessful scenario - unknown currencyCode
+		off = TestObject.mockOffer("unsuccessful scenario - unknown currencyCode");
+		off.setProductID(validProduct.getId());
+		off.setCurrencyCode("ZZZ");
+		testcasesList = addTestcase(testcasesList, "unsuccessful offer creation - unknown currencyCode", off, OfferCreationResult.Outcome.CURRENCY_INVALID);
 		
 		//result returned back from the function
-		long actualResult;
+		OfferCreationResult actualResult;
 		
 		//check each testcase
 		for(Map<String, Object> tc : testcasesList) {
 			log.info(String.format("testCreateOffer(): executing test: %s", tc.get("name")));
 			actualResult = offerService.createOffer(Offer.class.cast(tc.get("testData")));
-			assertEquals(actualResult, Long.parseLong(tc.get("expected").toString()));
+			assertEquals(tc.get("expected"), actualResult.getOutcome());
 		}
 	}
 
+	/**
+	 * Test method for {@link api.service.OfferService#createOffers(List, int)}.
+	 */
+	@Test
+	public void testCreateOffers() {
+		//save valid product into product repository for successful offer creation
+		Product validProduct = TestObject.mockProduct("successful batch - valid productID");
+		validProduct = productRepository.save(validProduct);
+		
+		Offer validOffer = TestObject.mockOffer("successful batch offer creation");
+		validOffer.setProductID(validProduct.getId());
+		
+		Offer wrongProductOffer = TestObject.mockOffer("unsuccessful batch offer creation - wrong productID");
+		wrongProductOffer.setProductID(1111111111L);
+		
+		Offer missingPriceOffer = TestObject.mockOffer("unsuccessful batch offer creation - missing price");
+		missingPriceOffer.setProductID(validProduct.getId());
+		missingPriceOffer.setPrice(null);
+		
+		Offer unknownCurrencyOffer = TestObject.mockOffer("unsuccessful batch offer creation - unknown currencyCode");
+		unknownCurrencyOffer.setProductID(validProduct.getId());
+		unknownCurrencyOffer.setCurrencyCode("ZZZ");
+		
+		List<OfferBatchResult> results = offerService.createOffers(
+				Arrays.asList(validOffer, wrongProductOffer, null, missingPriceOffer, unknownCurrencyOffer), 10);
+		
+		assertEquals(5, results.size());
+		//each offer gets its own result, failures do not abort the batch
+		assertEquals(10, results.get(0).getIndex());
+		assertEquals(201, results.get(0).getStatus());
+		assertEquals(OfferStatus.VALID, 
+				offerRepository.findById(Long.parseLong(results.get(0).getId())).get().getStatus());
+		assertEquals(11, results.get(1).getIndex());
+		assertEquals(400, results.get(1).getStatus());
+		assertEquals(400, results.get(2).getStatus());
+		assertEquals(400, results.get(3).getStatus());
+		assertEquals(400, results.get(4).getStatus());
+	}
+
 	/**
 	 * Test method for {@link api.service.OfferService#getOffer(long)}.
 	 */
@@ -93,7 +149,7 @@ public class OfferServiceTest {
 		//save offer that is now expired
 		Offer expiredOffer = TestObject.mockOffer("valid in db but expired offer saving");
 		expiredOffer.setCreatedOn("01/01/1980");
-		expiredOffer.setStatus(Offer.VALID__STATUS_OFFER_STRING);
+		expiredOffer.setStatus(OfferStatus.VALID);
 		expiredOffer = offerRepository.save(expiredOffer);
 		
 		//arraylist to define all scenarios using table driven test methodology
@@ -101,23 +157,47 @@ public class OfferServiceTest {
 		
 		//retrieve expired offer - valid in db but expired
 		Offer expectedOffer = expiredOffer;
-		expectedOffer.setStatus(Offer.EXPIRED__STATUS_OFFER_STRING);
+		expectedOffer.setStatus(OfferStatus.EXPIRED);
 		testcasesList = addTestcase(testcasesList, "retrieve expired offer - valid in db but expired", expiredOffer.getId(), expectedOffer);
 		
 		//unsuccessful scenario - search for a non saved offerID
-		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - search for a non saved offerID", -5L, new Offer());
+		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - search for a non saved offerID", -5L, null);
 		
 		//result returned back from the function
-		Offer actualResult;
+		OfferView actualResult;
 		
 		//check each testcase
 		for(Map<String, Object> tc : testcasesList) {
 			log.info(String.format("testGetOffer(): executing test: %s", tc.get("name")));
 			actualResult = offerService.getOffer(Long.parseLong(tc.get("testData").toString()));
-			assertEquals(actualResult.getId(), Offer.class.cast(tc.get("expected")).getId());
+			if (tc.get("expected") == null) {
+				assertNull(actualResult);
+			} else {
+				assertEquals(actualResult.getId(), Offer.class.cast(tc.get("expected")).getId());
+			}
 		}
 	}
 
+	/**
+	 * Test method for {@link api.service.OfferService#getOffer(long)} served by the offer cache.
+	 */
+	@Test
+	public void testGetOfferCached() {
+		Offer validOffer = TestObject.mockOffer("valid offer caching");
+		validOffer.setStatus(OfferStatus.VALID);
+		validOffer = offerRepository.save(validOffer);
+		
+		//the second retrieval is served by the cache
+		offerService.getOffer(validOffer.getId());
+		long hits = offerCache.stats().hitCount();
+		assertEquals(OfferStatus.VALID, offerService.getOffer(validOffer.getId()).getStatus());
+		assertEquals(hits + 1, offerCache.stats().hitCount());
+		
+		//cancelling the offer invalidates the cached one
+		assertEquals(OfferCancellation.CANCELLED, offerService.cancelOffer(validOffer.getId()));
+		assertEquals(OfferStatus.CANCELLED, offerService.getOffer(validOffer.getId()).getStatus());
+	}
+
 	/**
 	 * Test method for {@link api.service.OfferService#cancelOffer(long)}.
 	 */
@@ -127,45 +207,67 @@ public class OfferServiceTest {
 
 		//save expired offer
 		Offer expiredOffer = TestObject.mockOffer("expired offer saving");
-		expiredOffer.setStatus(Offer.EXPIRED__STATUS_OFFER_STRING);
+		expiredOffer.setStatus(OfferStatus.EXPIRED);
 		expiredOffer = offerRepository.save(expiredOffer);
 		
 		//save cancelled offer
 		Offer cancelledOffer = TestObject.mockOffer("cancelled offer saving");
-		cancelledOffer.setStatus(Offer.CANCELLED__STATUS_OFFER_STRING);
+		cancelledOffer.setStatus(OfferStatus.CANCELLED);
 		cancelledOffer = offerRepository.save(cancelledOffer);
 		
 		//save valid offer
 		Offer validOffer = TestObject.mockOffer("valid offer saving");
-		validOffer.setStatus(Offer.VALID__STATUS_OFFER_STRING);
+		validOffer.setStatus(OfferStatus.VALID);
 		validOffer = offerRepository.save(validOffer);
 		
 		//arraylist to define all scenarios using table driven test methodology
 		ArrayList<Map<String, Object>> testcasesList = new ArrayList<Map<String, Object>>();
 		
 		//successful scenario - cancel valid offer - function should return true, signaling the change of status from valid to cancelled
-		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - cancel valid offer", validOffer.getId(), true);
+		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - cancel valid offer", validOffer.getId(), OfferCancellation.CANCELLED);
 		
 		//unsuccessful scenario - cancel expired offer
-		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - cancel expired offer", expiredOffer.getId(), false);
+		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - cancel expired offer", expiredOffer.getId(), OfferCancellation.NOT_CANCELLABLE);
 		
 		//unsuccessful scenario - cancel cancelled offer
-		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - cancel cancelled offer", cancelledOffer.getId(), false);
+		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - cancel cancelled offer", cancelledOffer.getId(), OfferCancellation.ALREADY_CANCELLED);
 
 		//unsuccessful scenario - cancel an unexisting offer
-		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - cancel valid offer", validOffer.getId(), true);
+		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - cancel an unexisting offer", -5L, OfferCancellation.NOT_FOUND);
 
 		//result returned back from the function
-		boolean actualResult;
+		OfferCancellation actualResult;
 		
 		//check each testcase
 		for(Map<String, Object> tc : testcasesList) {
 			log.info(String.format("testCancelOffer(): executing test: %s", tc.get("name")));
 			actualResult = offerService.cancelOffer(Long.parseLong(tc.get("testData").toString()));
-			assertEquals(actualResult, (Boolean)tc.get("expected"));
+			assertEquals(tc.get("expected"), actualResult);
 		}
 	}
 
+	/**
+	 * Test method for {@link api.service.OfferService#cancelOffer(long)} on an offer which can no longer be cancelled.
+	 */
+	@Test
+	public void testCancelExpiredOffer() {
+		//offer stored as expired
+		Offer expiredOffer = TestObject.mockOffer("expired offer cancelling");
+		expiredOffer.setStatus(OfferStatus.EXPIRED);
+		expiredOffer = offerRepository.save(expiredOffer);
+		
+		//offer stored as valid but past its validity time frame
+		Offer unsweptOffer = TestObject.mockOffer("valid in db but expired offer cancelling");
+		unsweptOffer.setCreatedOn("01/01/1980");
+		unsweptOffer.setStatus(OfferStatus.VALID);
+		unsweptOffer = offerRepository.save(unsweptOffer);
+		
+		assertEquals(OfferCancellation.NOT_CANCELLABLE, offerService.cancelOffer(expiredOffer.getId()));
+		assertEquals(OfferCancellation.NOT_CANCELLABLE, offerService.cancelOffer(unsweptOffer.getId()));
+		assertEquals(OfferStatus.VALID, offerRepository.findStatusById(unsweptOffer.getId()));
+		assertEquals(OfferCancellation.NOT_FOUND, offerService.cancelOffer(-5L));
+	}
+
 	/**
 	 * Test method for {@link api.service.OfferService#findOfferByID(long)}.
 	 */
@@ -173,7 +275,7 @@ public class OfferServiceTest {
 	public void testFindOfferByID() {		
 		//save valid offer to be retrieved
 		Offer savedOffer = TestObject.mockOffer("valid offer saving");
-		savedOffer.setStatus(Offer.VALID__STATUS_OFFER_STRING);
+		savedOffer.setStatus(OfferStatus.VALID);
 		savedOffer = offerRepository.save(savedOffer);
 		
 		//arraylist to define all scenarios using table driven test methodology
@@ -183,7 +285,7 @@ public class OfferServiceTest {
 		testcasesList = addTestcase(testcasesList, "successful scenario - retrieve existing offer", savedOffer.getId(), savedOffer);
 		
 		//unsuccessful scenario - retrieve non-existing offer
-		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - retrieve non-existing offer", -5L, new Offer());
+		testcasesList = addTestcase(testcasesList, "unsuccessful scenario - retrieve non-existing offer", -5L, null);
 		
 		//result returned back from the function
 		Offer actualResult;
@@ -192,7 +294,11 @@ public class OfferServiceTest {
 		for(Map<String, Object> tc : testcasesList) {
 			log.info(String.format("testCancelOffer(): executing test: %s", tc.get("name")));
 			actualResult = offerService.findOfferByID(Long.parseLong(tc.get("testData").toString()));
-			assertEquals(actualResult.getId(), Offer.class.cast(tc.get("expected")).getId());
+			if (tc.get("expected") == null) {
+				assertNull(actualResult);
+			} else {
+				assertEquals(actualResult.getId(), Offer.class.cast(tc.get("expected")).getId());
+			}
 		}
 	}
 	
@@ -0,0 +1,106 @@
+package api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import api.model.Offer;
+import api.model.OfferSummary;
+import api.model.Product;
+import api.repository.ProductRepository;
+import api.service.OfferEventDispatcher;
+import api.service.OfferService;
+import api.service.OfferSummaryIndex;
+
+/**
+ * Unit tests for the OfferSummaryIndex class
+ * 
+ * <p>
+ * the tests run against their own db so that the events of their offers 
+ * are delivered by the dispatcher of their application context
+ * 
+ * @author Samith Silva
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, classes=Application.class, properties = {
+		"spring.datasource.generate-unique-name=true", "offer.events.initial-delay-ms=3600000"})
+@ActiveProfiles("test")
+public class OfferSummaryIndexTest {
+
+    @Autowired
+    private OfferSummaryIndex offerSummaryIndex;
+    
+    @Autowired
+    private OfferEventDispatcher offerEventDispatcher;
+    
+    @Autowired
+    private OfferService offerService;
+    
+    @Autowired
+	private ProductRepository productRepository;
+    
+	/**
+	 * Test method for {@link api.service.OfferSummaryIndex#summary(long, LocalDate)}.
+	 */
+	@Test
+	public void testSummary() {
+		long productID = productRepository.save(TestObject.mockProduct("offer summaries")).getId();
+		LocalDate today = LocalDate.now();
+		
+		createOffer(productID, "100", "EUR", 20);
+		long cheapest = createOffer(productID, "80", "EUR", 5);
+		createOffer(productID, "70.50", "GBP", 10);
+		
+		//offers are indexed once their events are delivered
+		assertEquals(0, offerSummaryIndex.summary(productID, today).getActiveOffers());
+		offerEventDispatcher.dispatch();
+		
+		OfferSummary summary = offerSummaryIndex.summary(productID, today);
+		assertEquals(3, summary.getActiveOffers());
+		assertPrices(summary, "EUR", "80", "100");
+		assertPrices(summary, "GBP", "70.50", "70.50");
+		assertEquals(today.plusDays(5), summary.getNextExpiryDate());
+		
+		offerService.cancelOffer(cheapest);
+		offerEventDispatcher.dispatch();
+		summary = offerSummaryIndex.summary(productID, today);
+		assertEquals(2, summary.getActiveOffers());
+		assertPrices(summary, "EUR", "100", "100");
+		assertEquals(today.plusDays(10), summary.getNextExpiryDate());
+		
+		//loading the index again leaves it unchanged
+		offerSummaryIndex.load();
+		assertEquals(2, offerSummaryIndex.summary(productID, today).getActiveOffers());
+		
+		//offers past their validity are dropped on read, before being expired by the sweeper
+		summary = offerSummaryIndex.summary(productID, today.plusDays(11));
+		assertEquals(1, summary.getActiveOffers());
+		assertNull(summary.getPrices().get("GBP"));
+		assertEquals(today.plusDays(20), summary.getNextExpiryDate());
+	}
+	
+	private long createOffer(long productID, String price, String currencyCode, int daysValidFor) {
+		Offer offer = TestObject.mockOffer("offer summaries");
+		offer.setProductID(productID);
+		offer.setPrice(new BigDecimal(price));
+		offer.setCurrencyCode(currencyCode);
+		offer.setDaysValidFor(daysValidFor);
+		return offerService.createOffer(offer).getOfferID();
+	}
+	
+	private static void assertPrices(OfferSummary summary, String currencyCode, String min, String max) {
+		assertEquals(0, new BigDecimal(min).compareTo(summary.getPrices().get(currencyCode).getMin()));
+		assertEquals(0, new BigDecimal(max).compareTo(summary.getPrices().get(currencyCode).getMax()));
+	}
+}
@@ -0,0 +1,57 @@
+package api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import api.model.Product;
+import api.repository.ProductRepository;
+import api.service.ProductCache;
+
+/**
+ * Unit tests for the ProductCache class
+ * 
+ * @author Samith Silva
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, classes=Application.class)
+@ActiveProfiles("test")
+public class ProductCacheTest {
+	
+    @Autowired
+    private ProductCache productCache;
+    
+    @Autowired
+	private ProductRepository productRepository;
+
+	/**
+	 * Test method for {@link api.service.ProductCache#exists(long)}.
+	 */
+	@Test
+	public void testExists() {
+		Product product = TestObject.mockProduct("product cache");
+		product.setId(123454321L);
+		
+		//missing products are not cached, hence a product saved afterwards is found
+		assertFalse(productCache.exists(product.getId()));
+		product = productRepository.save(product);
+		
+		long hits = productCache.stats().hitCount();
+		assertTrue(productCache.exists(product.getId()));
+		assertTrue(productCache.exists(product.getId()));
+		assertEquals(hits + 1, productCache.stats().hitCount());
+		
+		//removing the product invalidates its cached id
+		productRepository.delete(product);
+		assertFalse(productCache.exists(product.getId()));
+	}
+}